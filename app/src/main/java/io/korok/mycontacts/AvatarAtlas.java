@@ -0,0 +1,162 @@
+package io.korok.mycontacts;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AvatarAtlas reads the avatars which are packed into atlases at build time
+ * (see `packAvatars` in app/build.gradle). An avatar is decoded from its tile
+ * of the page, pages are opened once, so loading an avatar neither opens an
+ * asset nor scales an image. Pages are jpeg without alpha, tiles can be
+ * decoded as RGB_565.
+ *
+ * Layout of atlas/avatars.idx, all numbers are big-endian:
+ * <pre>
+ *   int magic 'CLAV'
+ *   int version
+ *   int pages
+ *   { UTF name }[pages]     the image of the page in assets
+ *   int tiles
+ *   { UTF file, short page, short x, short y, short size }[tiles]
+ * </pre>
+ * The file of a tile is the name of the avatar file, e.g. "Amanda Brady@2x.png".
+ *
+ * It's thread-safe.
+ */
+public class AvatarAtlas {
+    static final String INDEX = "atlas/avatars.idx";
+    static final int MAGIC = 0x434c4156;
+    static final int VERSION = 2;
+
+    private final AssetManager assets;
+    private final String[] pages;
+    private final BitmapRegionDecoder[] decoders;
+    private final Map<String, Tile> tiles;
+
+    private AvatarAtlas(AssetManager assets, String[] pages, Map<String, Tile> tiles) {
+        this.assets = assets;
+        this.pages = pages;
+        this.decoders = new BitmapRegionDecoder[pages.length];
+        this.tiles = tiles;
+    }
+
+    /**
+     * Reads the index, pages are opened when they're decoded first.
+     * @throws IOException if there's no index of this version
+     */
+    public static AvatarAtlas read(AssetManager assets) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(assets.open(INDEX)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an avatar atlas");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported atlas version: " + version);
+            }
+            final int n = in.readInt();
+            final String[] pages = new String[n];
+            for (int i = 0; i < n; i++) {
+                pages[i] = in.readUTF();
+            }
+            final int count = in.readInt();
+            final Map<String, Tile> tiles = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                final String file = in.readUTF();
+                final int page = in.readShort();
+                final int x = in.readShort();
+                final int y = in.readShort();
+                final int size = in.readShort();
+                if (page < 0 || page >= n) {
+                    throw new IOException("Bad page of " + file + ": " + page);
+                }
+                tiles.put(file, new Tile(page, new Rect(x, y, x + size, y + size)));
+            }
+            return new AvatarAtlas(assets, pages, tiles);
+        } finally {
+            in.close();
+        }
+    }
+
+    public boolean contains(String file) {
+        return tiles.containsKey(file);
+    }
+
+    /**
+     * Returns the number of tiles, of all densities.
+     */
+    public int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the size in pixels of the tile of file, or 0 if there's no such
+     * tile.
+     */
+    public int getSize(String file) {
+        final Tile tile = tiles.get(file);
+        return tile == null ? 0 : tile.rect.width();
+    }
+
+    /**
+     * Decodes the tile of file.
+     * @param options options of the decode, e.g. inBitmap to reuse, it's not
+     *                used if the decode fails
+     * @return the bitmap, or null if there's no such tile
+     */
+    public Bitmap decode(String file, BitmapFactory.Options options) throws IOException {
+        final Tile tile = tiles.get(file);
+        if (tile == null) {
+            return null;
+        }
+        final BitmapRegionDecoder decoder = getDecoder(tile.page);
+        Bitmap bitmap = null;
+        try {
+            bitmap = decoder.decodeRegion(tile.rect, options);
+        } catch (IllegalArgumentException e) {
+            // inBitmap doesn't fit.
+        }
+        if (bitmap == null && options != null && options.inBitmap != null) {
+            options.inBitmap = null;
+            bitmap = decoder.decodeRegion(tile.rect, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Failed to decode " + file);
+        }
+        return bitmap;
+    }
+
+    private synchronized BitmapRegionDecoder getDecoder(int page) throws IOException {
+        BitmapRegionDecoder decoder = decoders[page];
+        if (decoder == null) {
+            InputStream in = assets.open(pages[page]);
+            try {
+                decoder = BitmapRegionDecoder.newInstance(in, false);
+            } finally {
+                in.close();
+            }
+            decoders[page] = decoder;
+        }
+        return decoder;
+    }
+
+    static final class Tile {
+        final int page;
+        final Rect rect;
+
+        Tile(int page, Rect rect) {
+            this.page = page;
+            this.rect = rect;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package io.korok.mycontacts;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.korok.mycontacts.repos.AvatarManifest;
+import io.korok.mycontacts.repos.ContactsRepo;
+
+/**
+ * AvatarGlideModule configures Glide for avatars:
+ *
+ * - An avatar is loaded by its file name, e.g. "Amanda Brady@2x.png", so a
+ *   bind doesn't allocate a Uri. It's decoded from its tile of the atlas
+ *   (see {@link AvatarAtlas}), into a bitmap of the pool.
+ * - Bitmaps are RGB_565 unless the atlas page has alpha.
+ * - Tiles are thumbnails of the avatar size already, they're not cached on
+ *   disk. The memory cache holds the distinct avatars, up to a few screens
+ *   of them.
+ * - Memory cache hits and decode times are counted, see {@link #getStats()}.
+ */
+@GlideModule
+public class AvatarGlideModule extends AppGlideModule {
+    private static final String TAG = "AvatarGlideModule";
+
+    /**
+     * screens of avatars kept in the memory cache at most.
+     */
+    private static final int CACHED_SCREENS = 4;
+
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+    private static final AtomicInteger decodes = new AtomicInteger();
+    private static final AtomicLong decodeNanos = new AtomicLong();
+
+    private static AvatarAtlas atlas;
+    private static boolean atlasRead;
+
+    private static CountingMemoryCache memoryCache;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        final int size = context.getResources().getDimensionPixelSize(R.dimen.avatar_size);
+        // ARGB_8888, if the image has alpha.
+        final long bytes = 4L * size * size;
+        final int screen = metrics.widthPixels / size + 2;
+        final AvatarManifest manifest = ContactsRepo.getAvatarManifest(context);
+        final int distinct = manifest == null ? 0 : manifest.size();
+        final int avatars = distinct > 0 ? Math.min(distinct, screen * CACHED_SCREENS) : screen * CACHED_SCREENS;
+        // tiles are opaque, avatars are RGB_565, half of the size.
+        memoryCache = new CountingMemoryCache(bytes * avatars, 2 * avatars);
+        builder.setMemoryCache(memoryCache);
+        // bitmaps of the avatars which scroll out of a screen are reused.
+        builder.setBitmapPool(new LruBitmapPool(bytes * screen));
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.NONE));
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        final AvatarAtlas atlas = getAtlas(context.getAssets());
+        if (atlas == null) {
+            return;
+        }
+        registry.prepend(String.class, Tile.class, new TileLoader.Factory(atlas));
+        registry.prepend(Registry.BUCKET_BITMAP, Tile.class, Bitmap.class, new TileDecoder(atlas, glide.getBitmapPool()));
+    }
+
+    /**
+     * Returns the atlas of avatars, or null if it's not packed.
+     */
+    static synchronized AvatarAtlas getAtlas(AssetManager assets) {
+        if (!atlasRead) {
+            atlasRead = true;
+            try {
+                atlas = AvatarAtlas.read(assets);
+            } catch (IOException e) {
+                Log.w(TAG, "no avatar atlas", e);
+            }
+        }
+        return atlas;
+    }
+
+    /**
+     * Returns the decoded avatars as a cache of {@link CacheCoordinator}, its
+     * size is the number of avatars in the memory cache. Glide is
+     * unregistered from the application, the trim level of the coordinator
+     * is forwarded to it after the memory cache is trimmed, so the bitmap and
+     * array pools are trimmed like Glide does.
+     */
+    static CacheCoordinator.Cache getCache(Context context) {
+        final Glide glide = Glide.get(context);
+        final CacheCoordinator coordinator = CacheCoordinator.get(context);
+        context.getApplicationContext().unregisterComponentCallbacks(glide);
+        return new CacheCoordinator.Cache() {
+            @Override
+            public long size() {
+                return memoryCache == null ? 0 : memoryCache.count();
+            }
+
+            @Override
+            public long maxSize() {
+                return memoryCache == null ? 0 : memoryCache.maxCount;
+            }
+
+            @Override
+            public void trimToSize(long size) {
+                if (memoryCache == null) {
+                    return;
+                }
+                final long count = memoryCache.count();
+                if (count > size) {
+                    memoryCache.trimTo(size <= 0 ? 0 : memoryCache.getCurrentSize() * size / count);
+                }
+                glide.trimMemory(coordinator.getTrimLevel());
+            }
+        };
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+
+    public static int getMemoryCacheHitCount() {
+        return hits.get();
+    }
+
+    public static int getMemoryCacheMissCount() {
+        return misses.get();
+    }
+
+    public static int getDecodeCount() {
+        return decodes.get();
+    }
+
+    /**
+     * Returns the average decode time in milliseconds.
+     */
+    public static float getAverageDecodeMillis() {
+        final int n = decodes.get();
+        return n == 0 ? 0 : decodeNanos.get() / 1000000f / n;
+    }
+
+    public static String getStats() {
+        return "memory cache: " + hits.get() + " hits, " + misses.get() + " misses, decodes: "
+                + decodes.get() + ", " + getAverageDecodeMillis() + " ms each";
+    }
+
+    /**
+     * An avatar file in the atlas, it's the data of a load. It's decoded by
+     * {@link TileDecoder}, which reuses a bitmap of the pool.
+     */
+    static final class Tile {
+        final String file;
+
+        Tile(String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Loads an avatar by its file name, e.g. "Amanda Brady@2x.png". Other
+     * strings (paths, urls) and files which are not in the atlas are left to
+     * Glide's loaders.
+     */
+    static class TileLoader implements ModelLoader<String, Tile> {
+        private final AvatarAtlas atlas;
+
+        TileLoader(AvatarAtlas atlas) {
+            this.atlas = atlas;
+        }
+
+        @Override
+        public LoadData<Tile> buildLoadData(@NonNull String file, int width, int height, @NonNull Options options) {
+            return new LoadData<>(new ObjectKey(file), new TileFetcher(new Tile(file)));
+        }
+
+        @Override
+        public boolean handles(@NonNull String model) {
+            return model.indexOf('/') < 0 && model.indexOf(':') < 0 && atlas.contains(model);
+        }
+
+        static class Factory implements ModelLoaderFactory<String, Tile> {
+            private final AvatarAtlas atlas;
+
+            Factory(AvatarAtlas atlas) {
+                this.atlas = atlas;
+            }
+
+            @NonNull
+            @Override
+            public ModelLoader<String, Tile> build(@NonNull MultiModelLoaderFactory factory) {
+                return new TileLoader(atlas);
+            }
+
+            @Override
+            public void teardown() {
+            }
+        }
+    }
+
+    static class TileFetcher implements DataFetcher<Tile> {
+        private final Tile tile;
+
+        TileFetcher(Tile tile) {
+            this.tile = tile;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super Tile> callback) {
+            callback.onDataReady(tile);
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @NonNull
+        @Override
+        public Class<Tile> getDataClass() {
+            return Tile.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+
+    /**
+     * Decodes a tile into a bitmap of the pool, it's counted and timed.
+     */
+    static class TileDecoder implements ResourceDecoder<Tile, Bitmap> {
+        private final AvatarAtlas atlas;
+        private final BitmapPool pool;
+
+        TileDecoder(AvatarAtlas atlas, BitmapPool pool) {
+            this.atlas = atlas;
+            this.pool = pool;
+        }
+
+        @Override
+        public boolean handles(@NonNull Tile source, @NonNull Options options) {
+            return atlas.contains(source.file);
+        }
+
+        @Nullable
+        @Override
+        public Resource<Bitmap> decode(@NonNull Tile source, int width, int height, @NonNull Options options) throws IOException {
+            final long start = SystemClock.elapsedRealtimeNanos();
+            final int size = atlas.getSize(source.file);
+            final BitmapFactory.Options opts = new BitmapFactory.Options();
+            // pages have no alpha.
+            opts.inPreferredConfig = options.get(Downsampler.DECODE_FORMAT) == DecodeFormat.PREFER_RGB_565
+                    ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+            opts.inMutable = true;
+            final Bitmap reuse = pool.getDirty(size, size, opts.inPreferredConfig);
+            opts.inBitmap = reuse;
+            try {
+                final Bitmap bitmap = atlas.decode(source.file, opts);
+                if (bitmap != reuse) {
+                    pool.put(reuse);
+                }
+                return BitmapResource.obtain(bitmap, pool);
+            } catch (IOException e) {
+                pool.put(reuse);
+                throw e;
+            } finally {
+                decodeNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - start);
+                decodes.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Glide looks up the memory cache with remove(), it's counted.
+     */
+    static class CountingMemoryCache extends LruResourceCache {
+        /**
+         * the number of avatars which fit.
+         */
+        final int maxCount;
+
+        CountingMemoryCache(long size, int maxCount) {
+            super(size);
+            this.maxCount = maxCount;
+        }
+
+        int count() {
+            return getCount();
+        }
+
+        void trimTo(long size) {
+            trimToSize(size);
+        }
+
+        @Nullable
+        @Override
+        public synchronized Resource<?> remove(@NonNull Key key) {
+            final Resource<?> resource = super.remove(key);
+            if (resource == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return resource;
+        }
+    }
+}
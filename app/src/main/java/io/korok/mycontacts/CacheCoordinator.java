@@ -0,0 +1,257 @@
+package io.korok.mycontacts;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CacheCoordinator trims the caches of the process when the system is low on
+ * memory. Trim levels are mapped to tiers, each tier shrinks every registered
+ * cache to its size of the tier:
+ *
+ * - {@link #TIER_MODERATE}: half of its max size.
+ * - {@link #TIER_LOW}: what's on screen, see {@link #register}.
+ * - {@link #TIER_CRITICAL}: nothing.
+ *
+ * Max sizes are not changed, caches refill on demand. Sizes and evictions of
+ * each tier are counted, see {@link #getStats()}.
+ *
+ * Use it on the main thread, where the system calls it.
+ */
+public class CacheCoordinator implements ComponentCallbacks2 {
+    private static final String TAG = "CacheCoordinator";
+
+    public static final int TIER_NONE = 0;
+    public static final int TIER_MODERATE = 1;
+    public static final int TIER_LOW = 2;
+    public static final int TIER_CRITICAL = 3;
+    private static final String[] TIERS = {"none", "moderate", "low", "critical"};
+
+    /**
+     * A cache which can be trimmed, sizes are in the unit of the cache, e.g.
+     * entries.
+     */
+    public interface Cache {
+        long size();
+
+        /**
+         * Returns the size when there's no memory pressure.
+         */
+        long maxSize();
+
+        /**
+         * Evicts the least recently used entries, until the size is at most
+         * size.
+         */
+        void trimToSize(long size);
+    }
+
+    private static CacheCoordinator instance;
+
+    private final Map<String, Entry> caches = new LinkedHashMap<>();
+    private final int[] trims = new int[TIERS.length];
+    private int tier = TIER_NONE;
+    private int level;
+
+    private CacheCoordinator() {
+    }
+
+    /**
+     * Returns the coordinator, it's registered to the application the first
+     * time.
+     */
+    public static CacheCoordinator get(Context context) {
+        if (instance == null) {
+            instance = new CacheCoordinator();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a cache, it replaces the cache of the same name, counts of
+     * the name are kept.
+     * @param onScreen the size of what's on screen, it's kept in {@link #TIER_LOW}
+     */
+    public void register(String name, Cache cache, long onScreen) {
+        Entry e = caches.get(name);
+        if (e == null) {
+            e = new Entry();
+            caches.put(name, e);
+        }
+        e.cache = cache;
+        e.onScreen = onScreen;
+    }
+
+    /**
+     * Unregisters the cache of name, e.g. when its owner is destroyed.
+     */
+    public void unregister(String name) {
+        final Entry e = caches.get(name);
+        if (e != null) {
+            e.cache = null;
+        }
+    }
+
+    /**
+     * Trims all caches to their sizes of tier.
+     */
+    public void trim(int tier) {
+        trim(tier, levelOf(tier));
+    }
+
+    private void trim(int tier, int level) {
+        if (tier <= TIER_NONE || tier >= TIERS.length) {
+            return;
+        }
+        this.tier = tier;
+        this.level = level;
+        trims[tier]++;
+        long evicted = 0;
+        for (Entry e : caches.values()) {
+            if (e.cache == null) {
+                continue;
+            }
+            final long size = e.cache.size();
+            final long target = getTierSize(e, tier);
+            if (size > target) {
+                e.cache.trimToSize(target);
+                final long n = size - e.cache.size();
+                e.evictions[tier] += n;
+                evicted += n;
+            }
+        }
+        Log.i(TAG, "trimmed " + TIERS[tier] + ", evicted " + evicted);
+    }
+
+    /**
+     * Returns the tier of a trim level of ComponentCallbacks2.
+     */
+    static int tierOf(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            return TIER_CRITICAL;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // includes UI_HIDDEN and BACKGROUND, the UI is rebuilt on return.
+            return TIER_LOW;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            return TIER_MODERATE;
+        }
+        return TIER_NONE;
+    }
+
+    // Returns a trim level of tier, for trims which aren't from the system.
+    private static int levelOf(int tier) {
+        switch (tier) {
+            case TIER_MODERATE:
+                return TRIM_MEMORY_RUNNING_MODERATE;
+            case TIER_LOW:
+                return TRIM_MEMORY_RUNNING_LOW;
+            default:
+                return TRIM_MEMORY_COMPLETE;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trim(tierOf(level), level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        trim(TIER_CRITICAL, TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Returns the tier of the last trim, or TIER_NONE.
+     */
+    public int getTier() {
+        return tier;
+    }
+
+    /**
+     * Returns the ComponentCallbacks2 level of the last trim, e.g. for a
+     * cache which forwards it to a library which trims its own pools.
+     */
+    public int getTrimLevel() {
+        return level;
+    }
+
+    /**
+     * Returns how many times the caches were trimmed to tier.
+     */
+    public int getTrimCount(int tier) {
+        return trims[tier];
+    }
+
+    /**
+     * Returns the size of the cache of name, or -1 if it's not registered.
+     */
+    public long getSize(String name) {
+        final Entry e = caches.get(name);
+        return e == null || e.cache == null ? -1 : e.cache.size();
+    }
+
+    /**
+     * Returns the size which the cache of name is trimmed to in tier, or -1
+     * if it's not registered.
+     */
+    public long getTierSize(String name, int tier) {
+        final Entry e = caches.get(name);
+        return e == null || e.cache == null ? -1 : getTierSize(e, tier);
+    }
+
+    /**
+     * Returns the number of entries of name evicted in tier.
+     */
+    public long getEvictionCount(String name, int tier) {
+        final Entry e = caches.get(name);
+        return e == null ? 0 : e.evictions[tier];
+    }
+
+    public String getStats() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("tier: ").append(TIERS[tier]);
+        for (Map.Entry<String, Entry> me : caches.entrySet()) {
+            final Entry e = me.getValue();
+            sb.append(", ").append(me.getKey()).append(": ");
+            if (e.cache != null) {
+                sb.append(e.cache.size()).append('/').append(e.cache.maxSize());
+            }
+            sb.append(" evicted");
+            for (int t = TIER_MODERATE; t < TIERS.length; t++) {
+                sb.append(' ').append(TIERS[t]).append('=').append(e.evictions[t]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long getTierSize(Entry e, int tier) {
+        final long max = e.cache.maxSize();
+        switch (tier) {
+            case TIER_MODERATE:
+                return Math.max(max / 2, Math.min(e.onScreen, max));
+            case TIER_LOW:
+                return Math.min(e.onScreen, max);
+            case TIER_CRITICAL:
+                return 0;
+            default:
+                return max;
+        }
+    }
+
+    private static final class Entry {
+        Cache cache;
+        long onScreen;
+        final long[] evictions = new long[TIERS.length];
+    }
+}
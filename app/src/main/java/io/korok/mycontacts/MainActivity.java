@@ -1,55 +1,441 @@
 package io.korok.mycontacts;
 
 import android.content.Context;
-import android.net.Uri;
+import android.graphics.Bitmap;
+import android.graphics.Outline;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
-import android.support.v7.widget.LinearLayoutManager;
+import android.os.Looper;
+import android.util.Log;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.support.v7.widget.PagerSnapHelper;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.SnapHelper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.transition.DrawableCrossFadeFactory;
+
+import java.util.ArrayList;
 import java.util.List;
 
 import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.ContactChange;
+import io.korok.mycontacts.model.ContactTable;
+import io.korok.mycontacts.repos.ContactDiff;
+import io.korok.mycontacts.repos.ContactList;
+import io.korok.mycontacts.repos.ContactSearch;
 import io.korok.mycontacts.repos.ContactsRepo;
+import io.korok.mycontacts.repos.CursorContacts;
+import io.korok.mycontacts.repos.IntroductionIndex;
+import io.korok.mycontacts.repos.IntroductionLoader;
+import io.korok.mycontacts.repos.PagedContacts;
+import io.korok.mycontacts.view.CLFrameMonitor;
 import io.korok.mycontacts.view.CLLayoutManager;
+import io.korok.mycontacts.view.CLMonograms;
+import io.korok.mycontacts.view.CLPagerLayoutManager;
+import io.korok.mycontacts.view.CLPreloader;
+import io.korok.mycontacts.view.CLSnapHelper;
 import io.korok.mycontacts.view.CLSyncMediator;
+import io.korok.mycontacts.view.CLTextPrecomputer;
+import io.korok.mycontacts.view.CLTextView;
+import io.korok.mycontacts.view.CLViewPools;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+
+    private ContactsRepo.LoadTask loadTask;
+    private IntroductionIndex introductions;
+
+    // both adapters share the list, it grows while contacts are loading, and
+    // it's replaced when changes are applied.
+    private ContactList contacts = new ContactList();
+    private ListAvatarAdapter avatarAdapter;
+    private ListDetailAdapter detailAdapter;
+
+    // one change task at a time, changes received meanwhile wait for it.
+    // Changes wait for all batches too, an added contact would break the
+    // order of ids of the batches appended after it, see ContactList.
+    private ContactsRepo.ChangeTask changeTask;
+    private final List<ContactChange> pendingChanges = new ArrayList<>();
+    private boolean loaded;
+
+    // loaded batches whose pages can be dropped, they're shared by the lists
+    // which changes are applied to.
+    private final List<PagedContacts> pagedBatches = new ArrayList<>();
+
+    // loaded from the database, closed with the activity.
+    private final List<CursorContacts> cursorBatches = new ArrayList<>();
+
+    /**
+     * avatars decoded in idle time, after the items prefetched by the layout
+     * manager.
+     */
+    private static final int AVATAR_PRELOAD_DISTANCE = 8;
+
+    /**
+     * number of detail pages whose introduction is laid out ahead.
+     */
+    private static final int DETAIL_PRECOMPUTE_DISTANCE = 2;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // get fake data
-        List<Contact> contacts = ContactsRepo.getFakeData(this);
-
-
         // setup avatar RecyclerView
         RecyclerView recyclerView = findViewById(R.id.list_avatar);
         CLLayoutManager layoutManager = new CLLayoutManager();
         recyclerView.setLayoutManager(layoutManager);
+        // avatars have the same size, see listitem_avatar.xml.
+        layoutManager.setFixedItemSize(true);
         layoutManager.lockCenter(recyclerView);
-        recyclerView.setAdapter(new ListAvatarAdapter(this, contacts));
+        final LayoutInflater views = CLViewPools.getInflater(this, R.style.AppTheme, getDelegate());
+        avatarAdapter = new ListAvatarAdapter(this, views, contacts);
+        // pools live in the process, swapAdapter() keeps them.
+        recyclerView.setRecycledViewPool(CLViewPools.get("avatar"));
+        recyclerView.swapAdapter(avatarAdapter, false);
+        final int avatarSize = getResources().getDimensionPixelSize(R.dimen.avatar_size);
+        // visible avatars, prefetched ones, and the 2 cached by RecyclerView.
+        final int avatars = getResources().getDisplayMetrics().widthPixels / avatarSize + 2
+                + layoutManager.getMaxPrefetchDistance() + 2;
+        CLViewPools.prefill(recyclerView, avatarAdapter, 0, avatars);
+        recyclerView.addOnScrollListener(new CLPreloader(layoutManager.getMaxPrefetchDistance(), AVATAR_PRELOAD_DISTANCE) {
+            @Override
+            protected void preload(int position) {
+                final String avatar = avatarOf(contacts, position);
+                if (!TextUtils.isEmpty(avatar)) {
+                    AvatarViewHolder.request(MainActivity.this, avatar).preload();
+                }
+            }
+        });
+        recyclerView.addOnScrollListener(new CLFrameMonitor(this, "avatar"));
 
         // setup detail RecyclerView
         RecyclerView rvDetail = findViewById(R.id.list_detail);
-        rvDetail.setLayoutManager(new LinearLayoutManager(this));
+        CLPagerLayoutManager pagerLayoutManager = new CLPagerLayoutManager(this);
+        rvDetail.setLayoutManager(pagerLayoutManager);
         SnapHelper helper = new PagerSnapHelper();
         helper.attachToRecyclerView(rvDetail);
-        rvDetail.setAdapter(new ListDetailAdapter(this, contacts));
+        detailAdapter = new ListDetailAdapter(views, contacts,
+                ContactsRepo.getIntroductionLoader(this));
+        rvDetail.setRecycledViewPool(CLViewPools.get("detail"));
+        rvDetail.swapAdapter(detailAdapter, false);
+        // a page is the height of the list, the visible ones (2 while
+        // scrolling), offscreen ones, and a prefetched one.
+        final int pages = 2 + 2 * pagerLayoutManager.getOffscreenPageLimit() + 1;
+        CLViewPools.prefill(rvDetail, detailAdapter, 0, pages);
+        rvDetail.addOnScrollListener(new CLFrameMonitor(this, "detail"));
+        // text of the pages after the offscreen ones is laid out in the
+        // background.
+        rvDetail.addOnScrollListener(new CLPreloader(0, DETAIL_PRECOMPUTE_DISTANCE) {
+            @Override
+            protected void preload(int position) {
+                detailAdapter.precompute(position);
+            }
+        });
+
+        registerCaches(avatars, 2 * pagerLayoutManager.getOffscreenPageLimit() + 1);
 
         // sync each other
-        CLSyncMediator.sync(recyclerView, rvDetail);
+        final CLSyncMediator mediator = new CLSyncMediator(recyclerView, rvDetail);
+        mediator.sync();
+        layoutManager.getSnapHelper().setOnSnapListener(new CLSnapHelper.OnSnapListener() {
+            @Override
+            public void onSnapped(int position) {
+                mediator.settle(position);
+            }
+        });
+        pagerLayoutManager.setOnPageSettledListener(new CLPagerLayoutManager.OnPageSettledListener() {
+            @Override
+            public void onPageSettled(int position) {
+                mediator.settle(position);
+            }
+        });
+
+        // search box, it's enabled after the index is built.
+        final EditText etSearch = findViewById(R.id.search);
+        etSearch.setEnabled(false);
+
+        // load fake data in background, from the database if
+        // BuildConfig.CONTACTS_DATABASE, both adapters are notified in the same
+        // message, so their item counts never differ.
+        loadTask = ContactsRepo.loadAsync(this, AsyncTask.THREAD_POOL_EXECUTOR, new ContactsRepo.LoadCallback() {
+            @Override
+            public void onLoaded(List<Contact> batch) {
+                if (batch instanceof PagedContacts) {
+                    pagedBatches.add((PagedContacts) batch);
+                } else if (batch instanceof CursorContacts) {
+                    cursorBatches.add((CursorContacts) batch);
+                }
+                int start = contacts.append(batch);
+                avatarAdapter.notifyItemRangeInserted(start, batch.size());
+                detailAdapter.notifyItemRangeInserted(start, batch.size());
+            }
+
+            @Override
+            public void onComplete(int count, long firstItemMillis, long completeMillis) {
+                // timings are logged by LoadTask.
+                loaded = true;
+                if (!pendingChanges.isEmpty()) {
+                    applyChanges(new ArrayList<ContactChange>());
+                }
+            }
+
+            @Override
+            public void onIndexed(final ContactSearch search) {
+                etSearch.setEnabled(true);
+                etSearch.addTextChangedListener(new TextWatcher() {
+                    @Override
+                    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                    }
+
+                    @Override
+                    public void onTextChanged(CharSequence s, int start, int before, int count) {
+                    }
+
+                    @Override
+                    public void afterTextChanged(Editable s) {
+                        // jump to the best match, or the first contact
+                        // whose introduction contains all words. Indexes
+                        // are built at load, their positions are ids.
+                        int[] result = search.search(s.toString());
+                        if (result.length == 0 && introductions != null) {
+                            result = introductions.search(s.toString());
+                        }
+                        for (int id : result) {
+                            int position = contacts.indexOfId(id);
+                            if (position >= 0) {
+                                mediator.scrollToPosition(position);
+                                break;
+                            }
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onIntroductionsIndexed(IntroductionIndex index) {
+                introductions = index;
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Log.i(TAG, "avatars: " + AvatarGlideModule.getStats());
+        Log.i(TAG, "caches: " + CacheCoordinator.get(this).getStats());
+        CacheCoordinator.get(this).unregister("contacts");
+        CacheCoordinator.get(this).unregister("layouts");
+        // views go back to the pools, for the next activity.
+        ((RecyclerView) findViewById(R.id.list_avatar)).swapAdapter(null, true);
+        ((RecyclerView) findViewById(R.id.list_detail)).swapAdapter(null, true);
+        loadTask.cancel();
+        if (changeTask != null) {
+            changeTask.cancel();
+        }
+        for (CursorContacts cursor : cursorBatches) {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Registers the caches to trim under memory pressure, what's on screen
+     * is kept unless it's critical. Contacts and layouts are the activity's,
+     * the others live in the process, they're registered again by the next
+     * activity, so they don't reference this one.
+     * @param avatars number of avatars on screen
+     * @param pages number of detail pages laid out
+     */
+    private void registerCaches(int avatars, final int pages) {
+        final CacheCoordinator caches = CacheCoordinator.get(this);
+        caches.register("avatars", AvatarGlideModule.getCache(this), avatars);
+        caches.register("monograms", cacheOf(AvatarViewHolder.getMonograms(this)), avatars);
+        caches.register("introductions", cacheOf(ContactsRepo.getIntroductionLoader(this)), pages);
+        final CLTextPrecomputer texts = detailAdapter.texts;
+        caches.register("layouts", new CacheCoordinator.Cache() {
+            @Override
+            public long size() {
+                return texts.size();
+            }
+
+            @Override
+            public long maxSize() {
+                return texts.maxSize();
+            }
+
+            @Override
+            public void trimToSize(long size) {
+                texts.trimToSize((int) size);
+            }
+        }, pages);
+        // a page of contacts covers both lists, 2 if they're at its edge.
+        caches.register("contacts", new CacheCoordinator.Cache() {
+            @Override
+            public long size() {
+                long n = 0;
+                for (PagedContacts paged : pagedBatches) {
+                    n += paged.getResidentPages();
+                }
+                return n;
+            }
+
+            @Override
+            public long maxSize() {
+                long n = 0;
+                for (PagedContacts paged : pagedBatches) {
+                    n += paged.getMaxPages();
+                }
+                return n;
+            }
+
+            @Override
+            public void trimToSize(long size) {
+                for (PagedContacts paged : pagedBatches) {
+                    paged.trimToSize((int) (size / pagedBatches.size()));
+                }
+            }
+        }, 2);
+    }
+
+    // The caches of the process are wrapped in static methods, so they don't
+    // capture the activity.
+    private static CacheCoordinator.Cache cacheOf(final CLMonograms monograms) {
+        return new CacheCoordinator.Cache() {
+            @Override
+            public long size() {
+                return monograms.size();
+            }
+
+            @Override
+            public long maxSize() {
+                return monograms.maxSize();
+            }
+
+            @Override
+            public void trimToSize(long size) {
+                monograms.trimToSize((int) size);
+            }
+        };
+    }
+
+    private static CacheCoordinator.Cache cacheOf(final IntroductionLoader introductions) {
+        return new CacheCoordinator.Cache() {
+            @Override
+            public long size() {
+                return introductions.size();
+            }
+
+            @Override
+            public long maxSize() {
+                return introductions.maxSize();
+            }
+
+            @Override
+            public void trimToSize(long size) {
+                introductions.trimToSize((int) size);
+            }
+        };
+    }
+
+    /**
+     * Applies a change feed to the lists, the diff is computed in the
+     * background, adapters only get the changed ranges. Changes received
+     * while contacts are loading are applied when they're loaded.
+     *
+     * It's API only, the fake data has no feed. A feed, e.g. a sync of the
+     * database, calls it on the main thread.
+     */
+    public void applyChanges(List<ContactChange> changes) {
+        pendingChanges.addAll(changes);
+        if (changeTask != null || !loaded) {
+            return;
+        }
+        changeTask = ContactsRepo.applyChanges(contacts, pendingChanges, AsyncTask.THREAD_POOL_EXECUTOR,
+                new ContactsRepo.ChangeCallback() {
+                    @Override
+                    public void onChanged(ContactList contacts, ContactDiff diff) {
+                        MainActivity.this.contacts = contacts;
+                        avatarAdapter.setData(contacts);
+                        detailAdapter.setData(contacts);
+                        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+                            @Override
+                            public void onInserted(int position, int count) {
+                                avatarAdapter.notifyItemRangeInserted(position, count);
+                                detailAdapter.notifyItemRangeInserted(position, count);
+                            }
+
+                            @Override
+                            public void onRemoved(int position, int count) {
+                                avatarAdapter.notifyItemRangeRemoved(position, count);
+                                detailAdapter.notifyItemRangeRemoved(position, count);
+                            }
+
+                            @Override
+                            public void onMoved(int fromPosition, int toPosition) {
+                                avatarAdapter.notifyItemMoved(fromPosition, toPosition);
+                                detailAdapter.notifyItemMoved(fromPosition, toPosition);
+                            }
+
+                            @Override
+                            public void onChanged(int position, int count, Object payload) {
+                                avatarAdapter.notifyItemRangeChanged(position, count, payload);
+                                detailAdapter.notifyItemRangeChanged(position, count, payload);
+                            }
+                        });
+                        changeTask = null;
+                        if (!pendingChanges.isEmpty()) {
+                            applyChanges(new ArrayList<ContactChange>());
+                        }
+                    }
+                });
+        // the task has its own copy.
+        pendingChanges.clear();
+    }
+
+    // Returns the inflater, a clone in the background, where CLViewPools
+    // creates views: LayoutInflater isn't thread-safe.
+    static LayoutInflater inflater(LayoutInflater inflater) {
+        return Looper.myLooper() == Looper.getMainLooper() ? inflater : inflater.cloneInContext(inflater.getContext());
+    }
+
+    // Returns the stable id of the contact at position, a ContactList knows
+    // it without reading the contact.
+    static long itemId(List<Contact> data, int position) {
+        if (data instanceof ContactList) {
+            return ((ContactList) data).getId(position);
+        }
+        return data.get(position).id;
+    }
+
+    // Returns the avatar of the contact at position, a ContactTable row is
+    // read without decoding a Contact.
+    static String avatarOf(List<Contact> data, int position) {
+        if (data instanceof ContactList) {
+            ContactList list = (ContactList) data;
+            List<Contact> batch = list.getBatch(position);
+            if (batch instanceof ContactTable) {
+                return ((ContactTable) batch).getString(list.getIndexInBatch(position), ContactTable.AVATAR);
+            }
+        }
+        return data.get(position).avatar;
     }
 
     /**
@@ -57,23 +443,51 @@ public class MainActivity extends AppCompatActivity {
      */
     static class ListAvatarAdapter extends RecyclerView.Adapter<AvatarViewHolder> {
         private Context context;
+        private LayoutInflater views;
         private List<Contact> data;
 
-        ListAvatarAdapter(Context context, List<Contact> data) {
+        /**
+         * @param context the activity, avatars are loaded in its lifecycle
+         * @param views the inflater of views, see CLViewPools
+         */
+        ListAvatarAdapter(Context context, LayoutInflater views, List<Contact> data) {
             this.context = context;
+            this.views = views;
+            this.data = data;
+            setHasStableIds(true);
+        }
+
+        /**
+         * Swaps the list, the caller notifies the changed ranges.
+         */
+        public void setData(List<Contact> data) {
             this.data = data;
         }
 
+        @Override
+        public long getItemId(int position) {
+            return itemId(data, position);
+        }
+
         @NonNull
         @Override
         public AvatarViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            View view = LayoutInflater.from(context).inflate(R.layout.listitem_avatar, null);
+            View view = inflater(views).inflate(R.layout.listitem_avatar, parent, false);
             return new AvatarViewHolder(view);
         }
 
         @Override
         public void onBindViewHolder(@NonNull AvatarViewHolder holder, int position) {
-            holder.render(data.get(position));
+            // rows of a ContactTable are bound without decoding a Contact.
+            if (data instanceof ContactList) {
+                ContactList list = (ContactList) data;
+                List<Contact> batch = list.getBatch(position);
+                if (batch instanceof ContactTable) {
+                    holder.render(context, (ContactTable) batch, list.getIndexInBatch(position));
+                    return;
+                }
+            }
+            holder.render(context, data.get(position));
         }
 
         @Override
@@ -83,49 +497,191 @@ public class MainActivity extends AppCompatActivity {
     }
 
     static class AvatarViewHolder extends RecyclerView.ViewHolder {
+        private static final ViewOutlineProvider OVAL = new ViewOutlineProvider() {
+            @Override
+            public void getOutline(View view, Outline outline) {
+                outline.setOval(0, 0, view.getWidth(), view.getHeight());
+            }
+        };
+
+        private static final int MONOGRAM_CACHE_SIZE = 32;
+
+        // the monogram fades out, avatars are opaque.
+        private static final DrawableTransitionOptions CROSS_FADE = DrawableTransitionOptions.with(
+                new DrawableCrossFadeFactory.Builder().setCrossFadeEnabled(true).build());
+
+        private static RequestOptions options;
+        private static CLMonograms monograms;
+
         ImageView ivAvatar;
-        Context context;
 
         public AvatarViewHolder(View itemView) {
             super(itemView);
-            context = itemView.getContext();
             ivAvatar = itemView.findViewById(R.id.list_avatar);
+            // avatars are packed without alpha, the round shape is clipped.
+            ivAvatar.setOutlineProvider(OVAL);
+            ivAvatar.setClipToOutline(true);
+        }
+
+        /**
+         * @param context the activity, a pooled view outlives the one which
+         *                inflated it
+         */
+        public void render(Context context, Contact c) {
+            render(context, getMonograms(context).get(c.firstName, c.lastName), c.avatar);
+        }
+
+        /**
+         * Renders a row, only the avatar and the initials of the name are
+         * read.
+         */
+        public void render(Context context, ContactTable table, int row) {
+            final int hash = CLMonograms.hash(table.hash(row, ContactTable.FIRST_NAME),
+                    table.hash(row, ContactTable.LAST_NAME));
+            final Bitmap monogram = getMonograms(context).get(table.firstCodePoint(row, ContactTable.FIRST_NAME),
+                    table.firstCodePoint(row, ContactTable.LAST_NAME), hash);
+            render(context, monogram, table.getString(row, ContactTable.AVATAR));
         }
 
-        public void render(Contact c) {
-            Glide.with(context)
-                    .load(Uri.parse("file:///android_asset/avatars/"+c.avatar))
+        private void render(Context context, Bitmap bitmap, String avatar) {
+            final Drawable monogram = new BitmapDrawable(context.getResources(), bitmap);
+            if (TextUtils.isEmpty(avatar)) {
+                Glide.with(context).clear(ivAvatar);
+                ivAvatar.setImageDrawable(monogram);
+                return;
+            }
+            // a cached avatar is set in into(), the monogram isn't shown and
+            // there's no fade.
+            request(context, avatar)
+                    .apply(RequestOptions.placeholderOf(monogram))
+                    .transition(CROSS_FADE)
                     .into(ivAvatar);
         }
+
+        /**
+         * Returns the monograms of avatars, they're shared by the avatar lists.
+         */
+        static CLMonograms getMonograms(Context context) {
+            if (monograms == null) {
+                monograms = new CLMonograms(context.getResources().getDimensionPixelSize(R.dimen.avatar_size),
+                        MONOGRAM_CACHE_SIZE);
+            }
+            return monograms;
+        }
+
+        /**
+         * Returns the request of the avatar, preloads must use the same
+         * request, so they hit the memory cache when the item is bound. The
+         * transformation is set, so into() doesn't add one by scale type, the
+         * size is set, so it doesn't wait for the view to be laid out. The
+         * avatar is loaded by its name, see AvatarGlideModule.
+         */
+        static RequestBuilder<Drawable> request(Context context, String avatar) {
+            if (options == null) {
+                final int size = context.getResources().getDimensionPixelSize(R.dimen.avatar_size);
+                options = RequestOptions.fitCenterTransform().override(size);
+            }
+            return Glide.with(context)
+                    .load(avatar)
+                    .apply(options);
+        }
     }
 
     /**
      * Adapter for detail list.
      */
     static class ListDetailAdapter extends RecyclerView.Adapter<DetailViewHolder> {
+        private static final String TAG = "ListDetailAdapter";
+        private static final int BIND_REPORT_INTERVAL = 32;
+
         private List<Contact> data;
-        private Context context;
+        private LayoutInflater views;
+        private IntroductionLoader introductions;
+        private CLTextPrecomputer texts = new CLTextPrecomputer(AsyncTask.THREAD_POOL_EXECUTOR, 8);
 
-        public ListDetailAdapter(Context context, List<Contact> data) {
-            this.context = context;
+        /**
+         * the introduction view of a page, it has the style and width of
+         * introductions.
+         */
+        private CLTextView sample;
+
+        private long bindNanos;
+        private int binds;
+
+        /**
+         * @param views the inflater of views, see CLViewPools
+         */
+        public ListDetailAdapter(LayoutInflater views, List<Contact> data, IntroductionLoader introductions) {
+            this.views = views;
             this.data = data;
+            this.introductions = introductions;
+            setHasStableIds(true);
+        }
+
+        /**
+         * Lays out the introduction of position in the background, it's used
+         * when the page is bound. Pages must have been measured.
+         */
+        public void precompute(int position) {
+            if (sample == null || data == null || position >= data.size()) {
+                return;
+            }
+            Contact c = data.get(position);
+            texts.precompute(itemId(data, position), introductions.get(c), sample.getPaint(), sample.getTextWidth());
+        }
+
+        /**
+         * Returns the average bind time of a page in milliseconds.
+         */
+        public float getAverageBindMillis() {
+            return binds == 0 ? 0 : bindNanos / 1000000f / binds;
         }
 
+        /**
+         * Swaps the list, the caller notifies the changed ranges.
+         */
         public void setData(List<Contact> data) {
             this.data = data;
         }
 
+        @Override
+        public long getItemId(int position) {
+            return itemId(data, position);
+        }
+
 
         @NonNull
         @Override
         public DetailViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            LayoutInflater inflater = LayoutInflater.from(context);
-            ViewGroup view = (ViewGroup) inflater.inflate(R.layout.listitem_detail, parent, false);
+            ViewGroup view = (ViewGroup) inflater(views).inflate(R.layout.listitem_detail, parent, false);
             return new DetailViewHolder(view);
         }
 
         @Override
         public void onBindViewHolder(@NonNull DetailViewHolder holder, int position) {
+            final long start = System.nanoTime();
+            // a pooled holder may come from the adapter of an old activity.
+            holder.introductions = introductions;
+            holder.texts = texts;
+            sample = holder.tvIntro;
+            bind(holder, position);
+            bindNanos += System.nanoTime() - start;
+            if (++binds % BIND_REPORT_INTERVAL == 0 && BuildConfig.DEBUG) {
+                Log.d(TAG, "bind: " + getAverageBindMillis() + " ms per page, text layouts: "
+                        + texts.getHitCount() + " hits, " + texts.getMissCount() + " misses");
+            }
+        }
+
+        private void bind(DetailViewHolder holder, int position) {
+            // rows of a ContactTable are bound without decoding a Contact.
+            if (data instanceof ContactList) {
+                ContactList list = (ContactList) data;
+                List<Contact> batch = list.getBatch(position);
+                if (batch instanceof ContactTable) {
+                    holder.render((ContactTable) batch, list.getIndexInBatch(position));
+                    return;
+                }
+            }
             holder.render(data.get(position));
         }
 
@@ -139,7 +695,15 @@ public class MainActivity extends AppCompatActivity {
         private TextView tvName;
         private TextView tvContent;
         private TextView tvTitle;
-        private TextView tvIntro;
+        private CLTextView tvIntro;
+        private IntroductionLoader introductions;
+        private CLTextPrecomputer texts;
+
+        /**
+         * text buffers of each field, TextView.setText(char[]...) keeps a
+         * reference to the buffer, so they're not shared.
+         */
+        private char[][] buffers = new char[ContactTable.FIELDS][];
 
 
         public DetailViewHolder(View itemView) {
@@ -154,7 +718,28 @@ public class MainActivity extends AppCompatActivity {
             tvName.setText(data.firstName);
             tvContent.setText(data.lastName);
             tvTitle.setText(data.title);
-            tvIntro.setText(data.introduction);
+            setIntroduction(data.id, introductions.get(data));
+        }
+
+        public void render(ContactTable table, int row) {
+            setText(tvName, table, row, ContactTable.FIRST_NAME);
+            setText(tvContent, table, row, ContactTable.LAST_NAME);
+            tvTitle.setText(table.getString(row, ContactTable.TITLE)); // shared
+            setIntroduction(table.id(row), table.getString(row, ContactTable.INTRODUCTION));
+        }
+
+        // The layout of the text is used if it's precomputed.
+        private void setIntroduction(long id, String text) {
+            tvIntro.setText(text, texts.get(id, tvIntro.getPaint(), tvIntro.getTextWidth()));
+        }
+
+        private void setText(TextView tv, ContactTable table, int row, int field) {
+            final int length = table.length(row, field);
+            char[] buffer = buffers[field];
+            if (buffer == null || buffer.length < length) {
+                buffer = buffers[field] = new char[length];
+            }
+            tv.setText(buffer, 0, table.getChars(row, field, buffer));
         }
     }
 }
@@ -4,12 +4,26 @@ package io.korok.mycontacts.model;
  * Contact represent a person or logical entity.
  */
 public class Contact {
+    /**
+     * Stable identity of the contact, it doesn't change when the contact is
+     * updated or others are added or removed. Contacts of a source are
+     * numbered in order: their position in contacts.json or the snapshot, or
+     * the row id in the database. It's -1 if it's unknown.
+     */
+    public long id = -1;
+
     public String firstName;
     public String lastName;
     public String title;
     public String avatar;
     public String introduction;
 
+    /**
+     * Index of the introduction in the source if it's loaded on demand, then
+     * introduction is null. It's -1 if introduction is loaded with the contact.
+     */
+    public int introductionIndex = -1;
+
     public Contact(){
     }
 
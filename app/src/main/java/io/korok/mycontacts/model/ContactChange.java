@@ -0,0 +1,45 @@
+package io.korok.mycontacts.model;
+
+/**
+ * ContactChange is an entry of a change feed: a contact is added, updated or
+ * removed. Contacts are identified by {@link Contact#id}.
+ */
+public class ContactChange {
+    public static final int ADD = 0;
+    public static final int UPDATE = 1;
+    public static final int REMOVE = 2;
+
+    public final int type;
+    public final long id;
+
+    /**
+     * The new contact of ADD and UPDATE, null for REMOVE.
+     */
+    public final Contact contact;
+
+    private ContactChange(int type, long id, Contact contact) {
+        this.type = type;
+        this.id = id;
+        this.contact = contact;
+    }
+
+    public static ContactChange add(Contact c) {
+        return new ContactChange(ADD, c.id, c);
+    }
+
+    public static ContactChange update(Contact c) {
+        return new ContactChange(UPDATE, c.id, c);
+    }
+
+    public static ContactChange remove(long id) {
+        return new ContactChange(REMOVE, id, null);
+    }
+
+    @Override
+    public String toString() {
+        return "ContactChange{" +
+                "type=" + type +
+                ", id=" + id +
+                '}';
+    }
+}
@@ -0,0 +1,353 @@
+package io.korok.mycontacts.model;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * ContactTable stores contacts column by column: the text of free-text fields
+ * lives in one shared UTF-8 byte heap, each of them has an int column of
+ * offsets and one of lengths. Low-cardinality fields (title and avatar) are
+ * dictionary-encoded, they have an int column of codes into a shared
+ * {@link Dictionary}. There are no per-contact objects, a row costs a long
+ * id and 8 ints plus its text, which is 1 byte per char for ASCII.
+ *
+ * Use {@link #getChars(int, int, char[])} to read a text field into a reused
+ * buffer without allocation, e.g. for TextView.setText(char[], int, int).
+ * {@link #getString(int, int)} returns the shared value of a dictionary field.
+ * As a List, get() materializes a new Contact for the row.
+ *
+ * A table is immutable, use {@link Builder} to create one.
+ */
+public class ContactTable extends AbstractList<Contact> {
+    public static final int FIRST_NAME = 0;
+    public static final int LAST_NAME = 1;
+    public static final int TITLE = 2;
+    public static final int AVATAR = 3;
+    public static final int INTRODUCTION = 4;
+    public static final int FIELDS = 5;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] heap;
+    private final long[] ids;
+    /**
+     * text fields: offsets and lengths, dictionary fields: codes in starts.
+     */
+    private final int[][] starts;
+    private final int[][] lengths;
+    /**
+     * dictionary fields: the shared values of the dictionary, see
+     * {@link Dictionary#values()}, and the number of them when it was built.
+     */
+    private final String[][] dictionaries;
+    private final int[] dictionarySizes;
+    private final int rows;
+
+    private ContactTable(byte[] heap, long[] ids, int[][] starts, int[][] lengths, String[][] dictionaries,
+                         int[] dictionarySizes, int rows) {
+        this.heap = heap;
+        this.ids = ids;
+        this.starts = starts;
+        this.lengths = lengths;
+        this.dictionaries = dictionaries;
+        this.dictionarySizes = dictionarySizes;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the {@link Contact#id} of row.
+     */
+    public long id(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Returns true if the field is dictionary-encoded: title and avatar.
+     */
+    public static boolean isDictionaryField(int field) {
+        return field == TITLE || field == AVATAR;
+    }
+
+    /**
+     * Returns the dictionary code of a dictionary field of row. Rows with the
+     * same value have the same code, e.g. grouping by title compares ints.
+     */
+    public int code(int row, int field) {
+        return starts[field][row];
+    }
+
+    /**
+     * Returns the number of distinct values of a dictionary field, of the
+     * dictionary when the table was built.
+     */
+    public int dictionarySize(int field) {
+        return dictionarySizes[field];
+    }
+
+    /**
+     * Returns the length of the text field of row in bytes, it's never less
+     * than the number of chars.
+     */
+    public int length(int row, int field) {
+        return lengths[field][row];
+    }
+
+    /**
+     * Decodes the text field of row into dst, which must hold at least
+     * {@link #length(int, int)} chars.
+     * @return the number of chars
+     */
+    public int getChars(int row, int field, char[] dst) {
+        final byte[] heap = this.heap;
+        int p = starts[field][row];
+        final int end = p + lengths[field][row];
+        int n = 0;
+        while (p < end) {
+            final int b = heap[p++];
+            if (b >= 0) {
+                dst[n++] = (char) b;
+            } else if ((b & 0xe0) == 0xc0) {
+                dst[n++] = (char) (((b & 0x1f) << 6) | (heap[p++] & 0x3f));
+            } else if ((b & 0xf0) == 0xe0) {
+                dst[n++] = (char) (((b & 0x0f) << 12) | ((heap[p++] & 0x3f) << 6) | (heap[p++] & 0x3f));
+            } else {
+                final int cp = ((b & 0x07) << 18) | ((heap[p++] & 0x3f) << 12)
+                        | ((heap[p++] & 0x3f) << 6) | (heap[p++] & 0x3f);
+                dst[n++] = Character.highSurrogate(cp);
+                dst[n++] = Character.lowSurrogate(cp);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the first code point of the text field of row which isn't a
+     * whitespace, e.g. an initial, or -1 if there's none.
+     */
+    public int firstCodePoint(int row, int field) {
+        final byte[] heap = this.heap;
+        int p = starts[field][row];
+        final int end = p + lengths[field][row];
+        while (p < end) {
+            final int b = heap[p++];
+            final int cp;
+            if (b >= 0) {
+                cp = b;
+            } else if ((b & 0xe0) == 0xc0) {
+                cp = ((b & 0x1f) << 6) | (heap[p++] & 0x3f);
+            } else if ((b & 0xf0) == 0xe0) {
+                cp = ((b & 0x0f) << 12) | ((heap[p++] & 0x3f) << 6) | (heap[p++] & 0x3f);
+            } else {
+                cp = ((b & 0x07) << 18) | ((heap[p++] & 0x3f) << 12)
+                        | ((heap[p++] & 0x3f) << 6) | (heap[p++] & 0x3f);
+            }
+            if (!Character.isWhitespace(cp)) {
+                return cp;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the hash of the text field of row, the same as
+     * String.hashCode() of the field, without decoding it.
+     */
+    public int hash(int row, int field) {
+        final byte[] heap = this.heap;
+        int p = starts[field][row];
+        final int end = p + lengths[field][row];
+        int h = 0;
+        while (p < end) {
+            final int b = heap[p++];
+            if (b >= 0) {
+                h = 31 * h + b;
+            } else if ((b & 0xe0) == 0xc0) {
+                h = 31 * h + (((b & 0x1f) << 6) | (heap[p++] & 0x3f));
+            } else if ((b & 0xf0) == 0xe0) {
+                h = 31 * h + (((b & 0x0f) << 12) | ((heap[p++] & 0x3f) << 6) | (heap[p++] & 0x3f));
+            } else {
+                final int cp = ((b & 0x07) << 18) | ((heap[p++] & 0x3f) << 12)
+                        | ((heap[p++] & 0x3f) << 6) | (heap[p++] & 0x3f);
+                h = 31 * (31 * h + Character.highSurrogate(cp)) + Character.lowSurrogate(cp);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the field of row, a new String for a text field, or the shared
+     * value for a dictionary field.
+     */
+    public String getString(int row, int field) {
+        if (isDictionaryField(field)) {
+            return dictionaries[field][starts[field][row]];
+        }
+        return new String(heap, starts[field][row], lengths[field][row], UTF_8);
+    }
+
+    @Override
+    public Contact get(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + rows);
+        }
+        Contact c = new Contact();
+        c.id = ids[row];
+        c.firstName = getString(row, FIRST_NAME);
+        c.lastName = getString(row, LAST_NAME);
+        c.title = getString(row, TITLE);
+        c.avatar = getString(row, AVATAR);
+        c.introduction = getString(row, INTRODUCTION);
+        return c;
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Builder appends rows and grows the columns as needed.
+     */
+    public static class Builder {
+        private byte[] heap;
+        private int heapSize;
+        private long[] ids;
+        private int[][] starts = new int[FIELDS][];
+        private int[][] lengths = new int[FIELDS][];
+        private Dictionary[] dictionaries = new Dictionary[FIELDS];
+        private int rows;
+
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * @param capacity expected number of rows
+         */
+        public Builder(int capacity) {
+            this(capacity, new Dictionary(), new Dictionary());
+        }
+
+        /**
+         * Dictionaries may be shared by builders, e.g. batches of one load, so
+         * codes are the same in all tables.
+         * @param capacity expected number of rows
+         * @param titles dictionary of titles
+         * @param avatars dictionary of avatars, its mapper may resolve the
+         *                file name once per distinct avatar
+         */
+        public Builder(int capacity, Dictionary titles, Dictionary avatars) {
+            dictionaries[TITLE] = titles;
+            dictionaries[AVATAR] = avatars;
+            capacity = Math.max(capacity, 1);
+            heap = new byte[capacity * 64];
+            ids = new long[capacity];
+            for (int f = 0; f < FIELDS; f++) {
+                starts[f] = new int[capacity];
+                if (!isDictionaryField(f)) {
+                    lengths[f] = new int[capacity];
+                }
+            }
+        }
+
+        public Builder add(Contact c) {
+            return add(c.id, c.firstName, c.lastName, c.title, c.avatar, c.introduction);
+        }
+
+        /**
+         * Appends a row without id, see {@link Contact#id}.
+         */
+        public Builder add(String firstName, String lastName, String title, String avatar, String introduction) {
+            return add(-1, firstName, lastName, title, avatar, introduction);
+        }
+
+        /**
+         * Appends a row, null fields are stored as empty strings.
+         */
+        public Builder add(long id, String firstName, String lastName, String title, String avatar, String introduction) {
+            if (rows == starts[0].length) {
+                final int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                for (int f = 0; f < FIELDS; f++) {
+                    starts[f] = Arrays.copyOf(starts[f], capacity);
+                    if (!isDictionaryField(f)) {
+                        lengths[f] = Arrays.copyOf(lengths[f], capacity);
+                    }
+                }
+            }
+            ids[rows] = id;
+            put(FIRST_NAME, firstName);
+            put(LAST_NAME, lastName);
+            starts[TITLE][rows] = dictionaries[TITLE].encode(title);
+            starts[AVATAR][rows] = dictionaries[AVATAR].encode(avatar);
+            put(INTRODUCTION, introduction);
+            rows++;
+            return this;
+        }
+
+        public int size() {
+            return rows;
+        }
+
+        /**
+         * Returns a table of the rows added so far, the columns are trimmed to
+         * fit. Dictionaries are not copied, the table keeps their arrays. The
+         * builder should not be used after this.
+         */
+        public ContactTable build() {
+            int[][] s = new int[FIELDS][];
+            int[][] l = new int[FIELDS][];
+            String[][] d = new String[FIELDS][];
+            int[] n = new int[FIELDS];
+            for (int f = 0; f < FIELDS; f++) {
+                s[f] = Arrays.copyOf(starts[f], rows);
+                if (isDictionaryField(f)) {
+                    d[f] = dictionaries[f].values();
+                    n[f] = dictionaries[f].size();
+                } else {
+                    l[f] = Arrays.copyOf(lengths[f], rows);
+                }
+            }
+            return new ContactTable(Arrays.copyOf(heap, heapSize), Arrays.copyOf(ids, rows), s, l, d, n, rows);
+        }
+
+        // Encodes value as UTF-8 into the heap, the same as String.getBytes()
+        // but without the temporary array.
+        private void put(int field, String value) {
+            final int length = value == null ? 0 : value.length();
+            // a char takes at most 3 bytes, a surrogate pair takes 4.
+            if (heapSize + length * 3 > heap.length) {
+                heap = Arrays.copyOf(heap, Math.max(heap.length * 2, heapSize + length * 3));
+            }
+            final int start = heapSize;
+            int p = heapSize;
+            for (int i = 0; i < length; i++) {
+                final char ch = value.charAt(i);
+                if (ch < 0x80) {
+                    heap[p++] = (byte) ch;
+                } else if (ch < 0x800) {
+                    heap[p++] = (byte) (0xc0 | (ch >> 6));
+                    heap[p++] = (byte) (0x80 | (ch & 0x3f));
+                } else if (Character.isHighSurrogate(ch) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(ch, value.charAt(++i));
+                    heap[p++] = (byte) (0xf0 | (cp >> 18));
+                    heap[p++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    heap[p++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    heap[p++] = (byte) (0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(ch)) {
+                    // unpaired surrogate, '?' like String.getBytes().
+                    heap[p++] = '?';
+                } else {
+                    heap[p++] = (byte) (0xe0 | (ch >> 12));
+                    heap[p++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+                    heap[p++] = (byte) (0x80 | (ch & 0x3f));
+                }
+            }
+            starts[field][rows] = start;
+            lengths[field][rows] = p - start;
+            heapSize = p;
+        }
+    }
+}
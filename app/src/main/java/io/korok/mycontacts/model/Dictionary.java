@@ -0,0 +1,98 @@
+package io.korok.mycontacts.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary encodes values of a low-cardinality field (like title) to int
+ * codes, each distinct value is stored once. Codes are assigned in order, they
+ * never change, so a dictionary can be shared by several tables.
+ *
+ * Values are appended to an array, which is replaced by a larger copy when
+ * it's full. Tables keep the array of {@link #values()}, not a copy: values
+ * of the codes they were built with never change, so it's safe to read them
+ * on another thread after the table is published.
+ *
+ * It's not thread-safe, {@link #toArray()} returns a snapshot which is.
+ */
+public class Dictionary {
+
+    /**
+     * Mapper transforms a value when it's added to the dictionary, so it runs
+     * once per distinct value instead of once per row.
+     */
+    public interface Mapper {
+        String map(String value);
+    }
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+    private final Mapper mapper;
+
+    public Dictionary() {
+        this(null);
+    }
+
+    public Dictionary(Mapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Returns the code of value, value is added if it's new. A null value is
+     * encoded as the empty string.
+     */
+    public int encode(String value) {
+        if (value == null) {
+            value = "";
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = size;
+            codes.put(value, code);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = mapper == null ? value : mapper.map(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the (mapped) value of code.
+     */
+    public String decode(int code) {
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("code: " + code + ", size: " + size);
+        }
+        return values[code];
+    }
+
+    /**
+     * Returns the shared instance of the (mapped) value.
+     */
+    public String intern(String value) {
+        return decode(encode(value));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the array of values, it's shared: values of the codes so far
+     * never change, it may be longer than {@link #size()}, and it's replaced
+     * when the dictionary grows. Don't change it.
+     */
+    public String[] values() {
+        return values;
+    }
+
+    /**
+     * Returns a copy of the values of all codes so far.
+     */
+    public String[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
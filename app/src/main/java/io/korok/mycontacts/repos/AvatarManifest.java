@@ -0,0 +1,147 @@
+package io.korok.mycontacts.repos;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.korok.mycontacts.model.Dictionary;
+
+/**
+ * AvatarManifest lists the variants of each avatar which exist, e.g.
+ * "Amanda Brady.png" has 1x, @2x and @3x. It's generated with the avatar
+ * atlases at build time (see `packAvatars` in app/build.gradle), so an avatar
+ * is resolved to a file which exists without opening any.
+ *
+ * A variant is picked by {@link #resolve(String, float)}: the smallest scale
+ * which is at least the density, or the largest one if there's none.
+ *
+ * A manifest is immutable, it's safe on any thread.
+ */
+public class AvatarManifest {
+    static final int MAGIC = 0x434c414d; // 'CLAM'
+    static final int VERSION = 1;
+
+    /**
+     * scales are 1..MAX_SCALE, bit (scale-1) of a mask is set if it exists.
+     */
+    static final int MAX_SCALE = 8;
+
+    private final Map<String, Integer> scales;
+
+    private AvatarManifest(Map<String, Integer> scales) {
+        this.scales = scales;
+    }
+
+    public int size() {
+        return scales.size();
+    }
+
+    /**
+     * Returns the file of the best variant of avatar for density.
+     * @param avatar the 1x name of the avatar, e.g. "Amanda Brady.png"
+     * @return the file, e.g. "Amanda Brady@2x.png", or null if the avatar
+     *         has no variant
+     */
+    public String resolve(String avatar, float density) {
+        final Integer mask = avatar == null ? null : scales.get(avatar);
+        if (mask == null || mask == 0) {
+            return null;
+        }
+        int best = 0;
+        for (int scale = 1; scale <= MAX_SCALE; scale++) {
+            if ((mask & (1 << (scale - 1))) != 0) {
+                best = scale;
+                if (scale >= density) {
+                    break;
+                }
+            }
+        }
+        return variant(avatar, best);
+    }
+
+    /**
+     * Returns a mapper which resolves avatars for density, use it with a
+     * {@link Dictionary} so an avatar is resolved once.
+     */
+    public Dictionary.Mapper resolver(final float density) {
+        return new Dictionary.Mapper() {
+            @Override
+            public String map(String value) {
+                return resolve(value, density);
+            }
+        };
+    }
+
+    /**
+     * Returns the file of a variant, "name.png" for 1x, "name@2x.png" for 2x.
+     */
+    static String variant(String avatar, int scale) {
+        if (scale == 1) {
+            return avatar;
+        }
+        final int dot = avatar.lastIndexOf('.');
+        final String base = dot < 0 ? avatar : avatar.substring(0, dot);
+        return base + "@" + scale + "x" + (dot < 0 ? "" : avatar.substring(dot));
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(scales.size());
+        for (Map.Entry<String, Integer> e : scales.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeByte(e.getValue());
+        }
+    }
+
+    /**
+     * Reads a manifest written by write().
+     * @throws IOException if it's not a valid manifest
+     */
+    public static AvatarManifest read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an avatar manifest");
+        }
+        final int n = in.readInt();
+        Map<String, Integer> scales = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            final String avatar = in.readUTF();
+            scales.put(avatar, in.readUnsignedByte());
+        }
+        return new AvatarManifest(scales);
+    }
+
+    /**
+     * Builder collects avatar files, e.g. "Amanda Brady@2x.png". Names are
+     * parsed like packAvatars does, AvatarManifestTest checks that a built
+     * manifest is the generated one.
+     */
+    public static class Builder {
+        private final Map<String, Integer> scales = new TreeMap<>();
+
+        /**
+         * Adds a file, its scale is parsed from the "@Nx" suffix.
+         */
+        public Builder add(String file) {
+            final int dot = file.lastIndexOf('.');
+            final int end = dot < 0 ? file.length() : dot;
+            final int at = file.lastIndexOf('@', end);
+            int scale = 1;
+            String avatar = file;
+            if (at >= 0 && end - at == 3 && file.charAt(end - 1) == 'x'
+                    && file.charAt(at + 1) >= '1' && file.charAt(at + 1) <= '0' + MAX_SCALE) {
+                scale = file.charAt(at + 1) - '0';
+                avatar = file.substring(0, at) + file.substring(end);
+            }
+            final Integer mask = scales.get(avatar);
+            scales.put(avatar, (mask == null ? 0 : mask) | (1 << (scale - 1)));
+            return this;
+        }
+
+        public AvatarManifest build() {
+            return new AvatarManifest(new TreeMap<>(scales));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.korok.mycontacts.repos;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.ContactChange;
+
+/**
+ * ContactDiff applies a change feed to a {@link ContactList}: the result is a
+ * new list, and the range updates which turn the old list into it. Changes
+ * are located by id with binary search, so it's O(changes * log(size)), the
+ * unchanged ranges are shared with the old list, no contact is read.
+ *
+ * Compute it in the background on a {@link ContactList#copy()}, then set the
+ * new list to adapters and dispatch the updates on the main thread.
+ */
+public class ContactDiff {
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    private final ContactList contacts;
+
+    /**
+     * type, position, count of each update, positions are in the order of
+     * dispatching.
+     */
+    private int[] updates = new int[3 * 16];
+    private int updateCount;
+    private final int[] counts = new int[3];
+
+    private ContactDiff(ContactList contacts) {
+        this.contacts = contacts;
+    }
+
+    /**
+     * Applies changes to list. Changes of one id are applied in order: the
+     * last one wins, an ADD of an existing id updates it, an UPDATE of a
+     * missing id adds it.
+     * @param list the current contacts, it's not changed
+     * @param changes the change feed
+     */
+    public static ContactDiff compute(ContactList list, List<ContactChange> changes) {
+        // stable sort, the last change of an id is the last in its run.
+        List<ContactChange> sorted = new ArrayList<>(changes);
+        Collections.sort(sorted, new Comparator<ContactChange>() {
+            @Override
+            public int compare(ContactChange a, ContactChange b) {
+                return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+            }
+        });
+
+        final ContactList result = new ContactList();
+        final ContactDiff diff = new ContactDiff(result);
+        // a run of new contacts between unchanged ranges.
+        List<Contact> run = new ArrayList<>();
+        long[] runIds = new long[16];
+        int cursor = 0;
+        for (int i = 0, n = sorted.size(); i < n; i++) {
+            final ContactChange change = sorted.get(i);
+            if (i + 1 < n && sorted.get(i + 1).id == change.id) {
+                continue;
+            }
+            final int found = list.indexOfId(change.id);
+            final int position = found >= 0 ? found : -found - 1;
+            if (position > cursor) {
+                flush(result, run, runIds);
+                run = new ArrayList<>();
+                result.appendRange(list, cursor, position);
+                cursor = position;
+            }
+            final int newPosition = result.size() + run.size();
+            if (change.type == ContactChange.REMOVE) {
+                if (found >= 0) {
+                    diff.add(REMOVE, newPosition);
+                    cursor++;
+                }
+                continue;
+            }
+            if (found >= 0) {
+                diff.add(CHANGE, newPosition);
+                cursor++;
+            } else {
+                diff.add(INSERT, newPosition);
+            }
+            if (run.size() == runIds.length) {
+                runIds = Arrays.copyOf(runIds, runIds.length * 2);
+            }
+            runIds[run.size()] = change.id;
+            run.add(change.contact);
+        }
+        flush(result, run, runIds);
+        result.appendRange(list, cursor, list.size());
+        return diff;
+    }
+
+    private static void flush(ContactList result, List<Contact> run, long[] runIds) {
+        if (!run.isEmpty()) {
+            result.append(run, Arrays.copyOf(runIds, run.size()));
+        }
+    }
+
+    // Adds an update of one item, it's merged with the last one if they're
+    // adjacent.
+    private void add(int type, int position) {
+        counts[type]++;
+        if (updateCount > 0) {
+            final int last = (updateCount - 1) * 3;
+            if (updates[last] == type) {
+                final int end = type == REMOVE ? updates[last + 1] : updates[last + 1] + updates[last + 2];
+                if (end == position) {
+                    updates[last + 2]++;
+                    return;
+                }
+            }
+        }
+        if (updateCount * 3 == updates.length) {
+            updates = Arrays.copyOf(updates, updates.length * 2);
+        }
+        final int p = updateCount * 3;
+        updates[p] = type;
+        updates[p + 1] = position;
+        updates[p + 2] = 1;
+        updateCount++;
+    }
+
+    /**
+     * Returns the new list.
+     */
+    public ContactList getContacts() {
+        return contacts;
+    }
+
+    /**
+     * Returns the number of range updates.
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public int getInsertedCount() {
+        return counts[INSERT];
+    }
+
+    public int getRemovedCount() {
+        return counts[REMOVE];
+    }
+
+    public int getChangedCount() {
+        return counts[CHANGE];
+    }
+
+    /**
+     * Dispatches the range updates, e.g. to an adapter which already uses
+     * the new list.
+     */
+    public void dispatchUpdatesTo(ListUpdateCallback callback) {
+        for (int i = 0; i < updateCount; i++) {
+            final int p = i * 3;
+            switch (updates[p]) {
+                case INSERT:
+                    callback.onInserted(updates[p + 1], updates[p + 2]);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(updates[p + 1], updates[p + 2]);
+                    break;
+                default:
+                    callback.onChanged(updates[p + 1], updates[p + 2], null);
+            }
+        }
+    }
+}
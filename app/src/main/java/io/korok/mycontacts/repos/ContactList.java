@@ -0,0 +1,236 @@
+package io.korok.mycontacts.repos;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.ContactTable;
+
+/**
+ * ContactList is a list built from loaded batches. Batches are kept as they
+ * are, so a lazy batch (like {@link ContactSnapshot}) is never copied or
+ * decoded.
+ *
+ * Contacts are ordered by {@link Contact#id}. The list knows the id of each
+ * position without reading the contact: ids of a loaded batch are consecutive,
+ * changed contacts keep their ids in an array. So a {@link ContactDiff} is
+ * computed in the background, the new list shares the unchanged ranges of
+ * batches with the old one.
+ *
+ * It's not thread-safe, batches should be appended on the main thread, use
+ * {@link #copy()} to read it on other threads.
+ */
+public class ContactList extends AbstractList<Contact> {
+    private final List<Chunk> chunks;
+
+    /**
+     * starts[i] is the index of the first contact of chunks[i].
+     */
+    private int[] starts;
+    private int size;
+
+    /**
+     * the chunk of the last lookup, binding is mostly sequential.
+     */
+    private int lastChunk;
+
+    public ContactList() {
+        chunks = new ArrayList<>();
+        starts = new int[16];
+    }
+
+    private ContactList(ContactList other) {
+        chunks = new ArrayList<>(other.chunks);
+        starts = Arrays.copyOf(other.starts, Math.max(other.chunks.size(), 16));
+        size = other.size;
+    }
+
+    /**
+     * Appends a batch, the batch must not be changed after that. Ids of the
+     * batch must be consecutive and greater than ids in the list, e.g. the
+     * first contact is read to get the first id.
+     * @return the index of the first appended contact
+     * @throws IllegalArgumentException if the first id isn't greater than the
+     *         last id of the list, e.g. a contact was added by a change while
+     *         batches are loading
+     */
+    public int append(List<Contact> batch) {
+        if (batch.isEmpty()) {
+            return size;
+        }
+        final long firstId = batch.get(0).id;
+        checkAscending(firstId);
+        return add(new Chunk(batch, 0, batch.size(), firstId, null));
+    }
+
+    /**
+     * Appends contacts with their ids, ids must be ascending.
+     */
+    int append(List<Contact> contacts, long[] ids) {
+        if (contacts.isEmpty()) {
+            return size;
+        }
+        checkAscending(ids[0]);
+        return add(new Chunk(contacts, 0, contacts.size(), 0, ids));
+    }
+
+    private void checkAscending(long firstId) {
+        if (size > 0 && firstId <= getId(size - 1)) {
+            throw new IllegalArgumentException("id " + firstId + " is not greater than the last id "
+                    + getId(size - 1));
+        }
+    }
+
+    /**
+     * Appends the contacts of source in [from, to), no contact is read.
+     */
+    void appendRange(ContactList source, int from, int to) {
+        while (from < to) {
+            final int i = source.locate(from);
+            final Chunk chunk = source.chunks.get(i);
+            final int offset = from - source.starts[i];
+            final int n = Math.min(chunk.size - offset, to - from);
+            add(chunk.slice(offset, n));
+            from += n;
+        }
+    }
+
+    private int add(Chunk chunk) {
+        final int start = size;
+        final int n = chunks.size();
+        if (n == starts.length) {
+            starts = Arrays.copyOf(starts, n * 2);
+        }
+        starts[n] = start;
+        chunks.add(chunk);
+        size += chunk.size;
+        modCount++;
+        return start;
+    }
+
+    /**
+     * Returns a copy which shares the batches, it's safe to read the ids of
+     * the copy on any thread.
+     */
+    public ContactList copy() {
+        return new ContactList(this);
+    }
+
+    @Override
+    public Contact get(int index) {
+        final int chunk = locate(index);
+        final Chunk c = chunks.get(chunk);
+        return c.batch.get(c.offset + index - starts[chunk]);
+    }
+
+    /**
+     * Returns the id of the contact at index without reading it.
+     */
+    public long getId(int index) {
+        final int chunk = locate(index);
+        return chunks.get(chunk).id(index - starts[chunk]);
+    }
+
+    /**
+     * Returns the index of the contact with id, or (-(insertion point) - 1)
+     * if there's no such contact, like Arrays.binarySearch().
+     */
+    public int indexOfId(long id) {
+        int lo = 0;
+        int hi = chunks.size() - 1;
+        // the last chunk whose first id <= id.
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (chunks.get(mid).id(0) <= id) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (hi < 0) {
+            return -1;
+        }
+        final Chunk c = chunks.get(hi);
+        final int start = starts[hi];
+        if (c.ids == null) {
+            final long k = id - c.id(0);
+            return k < c.size ? start + (int) k : -(start + c.size) - 1;
+        }
+        final int k = Arrays.binarySearch(c.ids, c.offset, c.offset + c.size, id);
+        return k >= 0 ? start + k - c.offset : -(start + (-k - 1 - c.offset)) - 1;
+    }
+
+    /**
+     * Returns the batch which holds the contact at index, e.g. to read a
+     * {@link ContactTable} row without allocation.
+     */
+    public List<Contact> getBatch(int index) {
+        final Chunk c = chunks.get(locate(index));
+        return c.batch;
+    }
+
+    /**
+     * Returns the index of the contact in its batch.
+     */
+    public int getIndexInBatch(int index) {
+        final int chunk = locate(index);
+        return chunks.get(chunk).offset + index - starts[chunk];
+    }
+
+    /**
+     * Returns the number of chunks, a chunk is a range of one batch.
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    private int locate(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        int chunk = lastChunk;
+        if (chunk >= chunks.size() || index < starts[chunk] || index >= starts[chunk] + chunks.get(chunk).size) {
+            chunk = Arrays.binarySearch(starts, 0, chunks.size(), index);
+            if (chunk < 0) {
+                chunk = -chunk - 2;
+            }
+            lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Chunk is a range of a batch: batch[offset] .. batch[offset+size]. Ids
+     * are firstId + i of batch[i], or ids[i] if ids is not null.
+     */
+    private static class Chunk {
+        final List<Contact> batch;
+        final int offset;
+        final int size;
+        final long firstId;
+        final long[] ids;
+
+        Chunk(List<Contact> batch, int offset, int size, long firstId, long[] ids) {
+            this.batch = batch;
+            this.offset = offset;
+            this.size = size;
+            this.firstId = firstId;
+            this.ids = ids;
+        }
+
+        long id(int i) {
+            return ids == null ? firstId + offset + i : ids[offset + i];
+        }
+
+        Chunk slice(int from, int n) {
+            return new Chunk(batch, offset + from, n, firstId, ids);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package io.korok.mycontacts.repos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import io.korok.mycontacts.model.Contact;
+
+/**
+ * ContactReader is a streaming parser for contacts.json. It reads the source
+ * token by token and emits one Contact at a time, so only the current record
+ * (plus a small char buffer) is kept in memory.
+ *
+ * The expected format is a JSON array of objects, unknown fields are skipped.
+ */
+public class ContactReader implements Closeable {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    /**
+     * reused to build keys and values, grows to the longest string once.
+     */
+    private final StringBuilder sb = new StringBuilder(256);
+
+    private boolean started;
+    private boolean finished;
+    private int count;
+
+    public ContactReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns the next contact, or null if the end of the array is reached.
+     * The id of a contact is its index in the array.
+     * @throws IOException if the source is not a valid contact array
+     */
+    public Contact next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int c;
+        if (!started) {
+            started = true;
+            expect('[');
+            c = peekToken();
+            if (c == ']') {
+                pos++;
+                finished = true;
+                return null;
+            }
+        } else {
+            c = nextToken();
+            if (c == ']') {
+                finished = true;
+                return null;
+            }
+            if (c != ',') {
+                throw syntaxError("expected ',' or ']'");
+            }
+        }
+        return readContact();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Contact readContact() throws IOException {
+        expect('{');
+        Contact contact = new Contact();
+        contact.id = count++;
+        int c = peekToken();
+        if (c == '}') {
+            pos++;
+            return fillMissing(contact);
+        }
+        for (;;) {
+            expect('"');
+            String key = readString();
+            expect(':');
+            if (peekToken() == '"') {
+                pos++;
+                assign(contact, key, readString());
+            } else {
+                skipValue();
+            }
+            c = nextToken();
+            if (c == '}') {
+                return fillMissing(contact);
+            }
+            if (c != ',') {
+                throw syntaxError("expected ',' or '}'");
+            }
+        }
+    }
+
+    private static void assign(Contact c, String key, String value) {
+        switch (key) {
+            case "first_name":
+                c.firstName = value;
+                break;
+            case "last_name":
+                c.lastName = value;
+                break;
+            case "title":
+                c.title = value;
+                break;
+            case "avatar_filename":
+                c.avatar = value;
+                break;
+            case "introduction":
+                c.introduction = value;
+                break;
+            default:
+                // unknown field, ignore.
+        }
+    }
+
+    // Missing fields are empty strings, the same as JSONObject.optString().
+    private static Contact fillMissing(Contact c) {
+        if (c.firstName == null) c.firstName = "";
+        if (c.lastName == null) c.lastName = "";
+        if (c.title == null) c.title = "";
+        if (c.avatar == null) c.avatar = "";
+        if (c.introduction == null) c.introduction = "";
+        return c;
+    }
+
+    // Reads a string body, the opening quote must be consumed already.
+    private String readString() throws IOException {
+        sb.setLength(0);
+        for (;;) {
+            int start = pos;
+            while (pos < limit) {
+                char ch = buffer[pos];
+                if (ch == '"' || ch == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            sb.append(buffer, start, pos - start);
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("unterminated string");
+                }
+                continue;
+            }
+            char ch = buffer[pos++];
+            if (ch == '"') {
+                return sb.toString();
+            }
+            sb.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int ch = read();
+        switch (ch) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) ch;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int d = Character.digit(read(), 16);
+                    if (d < 0) {
+                        throw syntaxError("invalid unicode escape");
+                    }
+                    code = (code << 4) | d;
+                }
+                return (char) code;
+            default:
+                throw syntaxError("invalid escape");
+        }
+    }
+
+    // Skips a value we don't care about: number, literal, object or array.
+    private void skipValue() throws IOException {
+        int c = nextToken();
+        if (c == '{' || c == '[') {
+            // only brackets and strings matter inside a nested value.
+            int depth = 1;
+            while (depth > 0) {
+                int ch = read();
+                if (ch == '"') {
+                    skipString();
+                } else if (ch == '{' || ch == '[') {
+                    depth++;
+                } else if (ch == '}' || ch == ']') {
+                    depth--;
+                }
+            }
+            return;
+        }
+        // number or literal, consume until a delimiter.
+        while (pos < limit || fill()) {
+            char ch = buffer[pos];
+            if (ch == ',' || ch == '}' || ch == ']' || isWhitespace(ch)) {
+                break;
+            }
+            pos++;
+        }
+    }
+
+    private void skipString() throws IOException {
+        for (;;) {
+            int ch = read();
+            if (ch == '"') {
+                return;
+            }
+            if (ch == '\\') {
+                read();
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextToken() != expected) {
+            throw syntaxError("expected '" + expected + "'");
+        }
+    }
+
+    // Returns the next non-whitespace char and consumes it.
+    private int nextToken() throws IOException {
+        int c = peekToken();
+        pos++;
+        return c;
+    }
+
+    // Returns the next non-whitespace char without consuming it.
+    private int peekToken() throws IOException {
+        for (;;) {
+            if (pos == limit && !fill()) {
+                throw syntaxError("unexpected end of input");
+            }
+            char ch = buffer[pos];
+            if (!isWhitespace(ch)) {
+                return ch;
+            }
+            pos++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("unexpected end of input");
+        }
+        return buffer[pos++];
+    }
+
+    // Refills the buffer, Reader.read() may return less than requested, so we
+    // only care about whether there is at least one char.
+    private boolean fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t';
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed contacts: " + message);
+    }
+}
@@ -0,0 +1,258 @@
+package io.korok.mycontacts.repos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ContactSearch is an as-you-type prefix index over first name, last name and
+ * title. Each field is split into lower-case words, the distinct words are
+ * sorted, so a query prefix selects one range of words with binary search,
+ * and the postings of that range are the matched contacts.
+ *
+ * Matches are ranked by field (first name, then last name, then title) and by
+ * position. When a query extends the previous one, its range is searched
+ * within the previous range instead of the whole index. Terms of a query are
+ * AND-ed: "al mu" matches contacts with words starting with "al" and "mu".
+ *
+ * Build it with {@link Builder} on any thread, query it on one thread.
+ */
+public class ContactSearch {
+    static final int RANK_FIRST_NAME = 0;
+    static final int RANK_LAST_NAME = 1;
+    static final int RANK_TITLE = 2;
+    private static final int RANKS = 3;
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * sorted distinct words, postings of terms[i] are
+     * postings[termStarts[i]] .. postings[termStarts[i+1]].
+     */
+    private final String[] terms;
+    private final int[] termStarts;
+
+    /**
+     * position << 2 | rank
+     */
+    private final int[] postings;
+    private final int count;
+
+    // bitsets of matched positions: one per rank, and one for AND-ed terms.
+    private final long[][] rankBits;
+    private final long[] termBits;
+    private int[] buffer;
+
+    // the previous query, its ranges are reused if the query is extended.
+    private String[] lastTerms = new String[0];
+    private int[] lastLo = new int[0];
+    private int[] lastHi = new int[0];
+
+    private ContactSearch(String[] terms, int[] termStarts, int[] postings, int count) {
+        this.terms = terms;
+        this.termStarts = termStarts;
+        this.postings = postings;
+        this.count = count;
+        final int words = (count + 63) >>> 6;
+        this.rankBits = new long[RANKS][words];
+        this.termBits = new long[words];
+    }
+
+    /**
+     * Returns the number of indexed contacts.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns positions of matched contacts, the best match first.
+     */
+    public int[] search(String query) {
+        final String[] q = tokenize(query);
+        if (q.length == 0) {
+            lastTerms = q;
+            return EMPTY;
+        }
+        final int[] lo = new int[q.length];
+        final int[] hi = new int[q.length];
+        for (int t = 0; t < q.length; t++) {
+            // narrow the range of the same term of the previous query.
+            int from = 0;
+            int to = terms.length;
+            if (t < lastTerms.length && q[t].startsWith(lastTerms[t])) {
+                from = lastLo[t];
+                to = lastHi[t];
+            }
+            lo[t] = lowerBound(q[t], from, to);
+            hi[t] = prefixEnd(q[t], lo[t], to);
+        }
+        lastTerms = q;
+        lastLo = lo;
+        lastHi = hi;
+
+        for (int t = 0; t < q.length; t++) {
+            if (lo[t] == hi[t]) {
+                return EMPTY;
+            }
+        }
+
+        // rank bitsets come from the first term, other terms filter them.
+        for (long[] bits : rankBits) {
+            Arrays.fill(bits, 0);
+        }
+        for (int i = termStarts[lo[0]], end = termStarts[hi[0]]; i < end; i++) {
+            final int p = postings[i];
+            final int pos = p >>> 2;
+            rankBits[p & 3][pos >>> 6] |= 1L << pos;
+        }
+        for (int t = 1; t < q.length; t++) {
+            Arrays.fill(termBits, 0);
+            for (int i = termStarts[lo[t]], end = termStarts[hi[t]]; i < end; i++) {
+                final int pos = postings[i] >>> 2;
+                termBits[pos >>> 6] |= 1L << pos;
+            }
+            for (long[] bits : rankBits) {
+                for (int w = 0; w < bits.length; w++) {
+                    bits[w] &= termBits[w];
+                }
+            }
+        }
+        return collect();
+    }
+
+    // Collects positions rank by rank, a position is only reported with its
+    // best rank.
+    private int[] collect() {
+        if (buffer == null) {
+            buffer = new int[Math.min(count, 256)];
+        }
+        int n = 0;
+        final int words = termBits.length;
+        for (int r = 0; r < RANKS; r++) {
+            final long[] bits = rankBits[r];
+            for (int w = 0; w < words; w++) {
+                long word = bits[w];
+                for (int b = 0; b < r; b++) {
+                    word &= ~rankBits[b][w];
+                }
+                while (word != 0) {
+                    if (n == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.min(count, n * 2));
+                    }
+                    buffer[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(buffer, n);
+    }
+
+    // Returns the first index in [from, to) whose term is >= key.
+    private int lowerBound(String key, int from, int to) {
+        while (from < to) {
+            final int mid = (from + to) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // Returns the first index in [from, to) whose term doesn't start with
+    // prefix, all terms before `from` are less than the prefix.
+    private int prefixEnd(String prefix, int from, int to) {
+        while (from < to) {
+            final int mid = (from + to) >>> 1;
+            if (terms[mid].startsWith(prefix)) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        List<String> words = new ArrayList<>(4);
+        final String lower = text.toLowerCase(Locale.US);
+        int start = -1;
+        for (int i = 0, n = lower.length(); i <= n; i++) {
+            final boolean letter = i < n && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[words.size()]);
+    }
+
+    /**
+     * Builder collects words of contacts, positions must be added in order.
+     */
+    public static class Builder {
+        private final Map<String, int[]> postings = new HashMap<>();
+        private int count;
+        private int total;
+
+        /**
+         * Adds the contact at the next position.
+         */
+        public Builder add(String firstName, String lastName, String title) {
+            final int position = count++;
+            addField(firstName, position, RANK_FIRST_NAME);
+            addField(lastName, position, RANK_LAST_NAME);
+            addField(title, position, RANK_TITLE);
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public ContactSearch build() {
+            final String[] terms = postings.keySet().toArray(new String[postings.size()]);
+            Arrays.sort(terms);
+            final int[] starts = new int[terms.length + 1];
+            final int[] flat = new int[total];
+            int n = 0;
+            for (int i = 0; i < terms.length; i++) {
+                starts[i] = n;
+                final int[] list = postings.get(terms[i]);
+                // list[0] is the size of the list.
+                System.arraycopy(list, 1, flat, n, list[0]);
+                n += list[0];
+            }
+            starts[terms.length] = n;
+            return new ContactSearch(terms, starts, flat, count);
+        }
+
+        private void addField(String text, int position, int rank) {
+            for (String word : tokenize(text)) {
+                int[] list = postings.get(word);
+                if (list == null) {
+                    list = new int[4];
+                    postings.put(word, list);
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    postings.put(word, list);
+                }
+                list[++list[0]] = position << 2 | rank;
+                total++;
+            }
+        }
+    }
+}
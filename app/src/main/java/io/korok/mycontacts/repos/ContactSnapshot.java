@@ -0,0 +1,143 @@
+package io.korok.mycontacts.repos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+
+import io.korok.mycontacts.model.Contact;
+
+/**
+ * ContactSnapshot is a read-only view of contacts.bin, a binary snapshot that
+ * compiled from contacts.json at build time (see `compileContactSnapshot` in
+ * app/build.gradle). Opening a snapshot only reads the header, each Contact is
+ * decoded when it's requested. Introductions are long, they're not decoded
+ * with the contact, the offset table works as an index to load them on demand,
+ * see {@link IntroductionLoader}.
+ *
+ * Layout, all ints are big-endian:
+ * <pre>
+ *   int magic 'CLCS'
+ *   int version
+ *   int count
+ *   int fields                      number of string fields per contact
+ *   int offsets[count*fields + 1]   offsets into the heap, the string of
+ *                                   (i, f) spans offsets[i*fields+f] ..
+ *                                   offsets[i*fields+f+1]
+ *   byte heap[]                     UTF-8 strings
+ * </pre>
+ */
+public class ContactSnapshot extends AbstractList<Contact> implements IntroductionLoader.Source {
+    static final int MAGIC = 0x434c4353;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Field order in the snapshot.
+     */
+    static final int FIRST_NAME = 0;
+    static final int LAST_NAME = 1;
+    static final int TITLE = 2;
+    static final int AVATAR = 3;
+    static final int INTRODUCTION = 4;
+    static final int FIELDS = 5;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int heapStart;
+
+    /**
+     * @throws IOException if the buffer is not a snapshot of this version
+     */
+    public ContactSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a contact snapshot");
+        }
+        if (buffer.getInt(4) != VERSION || buffer.getInt(12) != FIELDS) {
+            throw new IOException("Unsupported snapshot version: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.heapStart = HEADER_SIZE + (count * FIELDS + 1) * 4;
+        if (heapStart > buffer.limit() || heapStart + offset(count * FIELDS) > buffer.limit()) {
+            throw new IOException("Truncated snapshot");
+        }
+    }
+
+    /**
+     * Maps a region of the file into memory, the mapping stays valid after the
+     * channel is closed.
+     */
+    public static ContactSnapshot map(FileChannel channel, long offset, long length) throws IOException {
+        return new ContactSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes the contact at index, a new Contact is returned for each call.
+     * The index is the id of the contact.
+     * The introduction is not decoded, see {@link #getIntroduction(int)}.
+     */
+    @Override
+    public Contact get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+        }
+        Contact c = new Contact();
+        c.id = index;
+        c.firstName = string(index, FIRST_NAME);
+        c.lastName = string(index, LAST_NAME);
+        c.title = string(index, TITLE);
+        c.avatar = string(index, AVATAR);
+        c.introductionIndex = index;
+        return c;
+    }
+
+    /**
+     * Decodes the introduction of the contact at index.
+     */
+    @Override
+    public String getIntroduction(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+        }
+        return string(index, INTRODUCTION);
+    }
+
+    /**
+     * Decodes one field of the contact at index, it's safe on any thread.
+     */
+    String getField(int index, int field) {
+        return string(index, field);
+    }
+
+    private String string(int index, int field) {
+        final int slot = index * FIELDS + field;
+        final int start = offset(slot);
+        final int length = offset(slot + 1) - start;
+        if (length == 0) {
+            return "";
+        }
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + heapStart + start, length, UTF_8);
+        }
+        // mapped buffer, copy with absolute gets so the buffer's position is
+        // never touched.
+        byte[] bytes = new byte[length];
+        for (int i = 0, p = heapStart + start; i < length; i++, p++) {
+            bytes[i] = buffer.get(p);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private int offset(int slot) {
+        return buffer.getInt(HEADER_SIZE + slot * 4);
+    }
+}
@@ -0,0 +1,181 @@
+package io.korok.mycontacts.repos;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.IOException;
+
+import io.korok.mycontacts.model.Contact;
+
+/**
+ * ContactsDatabase is a persistent store of contacts in SQLite. Contacts are
+ * imported once from contacts.json, an FTS4 table over the text columns is
+ * kept in sync by triggers.
+ *
+ * Queries return cursors without introductions, so a cursor window holds many
+ * rows, introductions are loaded by id, see {@link IntroductionLoader}.
+ * Wrap a cursor with {@link CursorContacts} to use it as a list.
+ */
+public class ContactsDatabase extends SQLiteOpenHelper implements IntroductionLoader.Source {
+    static final String NAME = "contacts.db";
+    // 2: ids are the ids of the reader.
+    static final int VERSION = 2;
+
+    static final String TABLE = "contacts";
+    static final String FTS_TABLE = "contacts_fts";
+
+    public static final String ID = "_id";
+    public static final String FIRST_NAME = "first_name";
+    public static final String LAST_NAME = "last_name";
+    public static final String TITLE = "title";
+    public static final String AVATAR = "avatar";
+    public static final String INTRODUCTION = "introduction";
+
+    /**
+     * Columns of query() and search(), in this order.
+     */
+    static final String COLUMNS = ID + ", " + FIRST_NAME + ", " + LAST_NAME + ", " + TITLE + ", " + AVATAR;
+
+    private static final String FTS_COLUMNS = FIRST_NAME + ", " + LAST_NAME + ", " + TITLE + ", " + INTRODUCTION;
+
+    /**
+     * @param name file name, or null for an in-memory database
+     */
+    public ContactsDatabase(Context context, String name) {
+        super(context, name, null, VERSION);
+    }
+
+    public ContactsDatabase(Context context) {
+        this(context, NAME);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + ID + " INTEGER PRIMARY KEY, "
+                + FIRST_NAME + " TEXT NOT NULL, "
+                + LAST_NAME + " TEXT NOT NULL, "
+                + TITLE + " TEXT NOT NULL, "
+                + AVATAR + " TEXT NOT NULL, "
+                + INTRODUCTION + " TEXT NOT NULL)");
+        // external content, the text is only stored in the contacts table.
+        db.execSQL("CREATE VIRTUAL TABLE " + FTS_TABLE + " USING fts4(content=\"" + TABLE + "\", "
+                + FTS_COLUMNS + ")");
+        db.execSQL("CREATE TRIGGER contacts_bu BEFORE UPDATE ON " + TABLE + " BEGIN "
+                + "DELETE FROM " + FTS_TABLE + " WHERE docid = old." + ID + "; END");
+        db.execSQL("CREATE TRIGGER contacts_bd BEFORE DELETE ON " + TABLE + " BEGIN "
+                + "DELETE FROM " + FTS_TABLE + " WHERE docid = old." + ID + "; END");
+        db.execSQL("CREATE TRIGGER contacts_au AFTER UPDATE ON " + TABLE + " BEGIN "
+                + "INSERT INTO " + FTS_TABLE + " (docid, " + FTS_COLUMNS + ") VALUES (new." + ID + ", new."
+                + FIRST_NAME + ", new." + LAST_NAME + ", new." + TITLE + ", new." + INTRODUCTION + "); END");
+        db.execSQL("CREATE TRIGGER contacts_ai AFTER INSERT ON " + TABLE + " BEGIN "
+                + "INSERT INTO " + FTS_TABLE + " (docid, " + FTS_COLUMNS + ") VALUES (new." + ID + ", new."
+                + FIRST_NAME + ", new." + LAST_NAME + ", new." + TITLE + ", new." + INTRODUCTION + "); END");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // contacts are imported from the asset, drop them and import again.
+        db.execSQL("DROP TABLE IF EXISTS " + FTS_TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    /**
+     * Returns the number of contacts.
+     */
+    public int count() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE);
+    }
+
+    /**
+     * Inserts all contacts of reader in one transaction, with the ids of the
+     * reader, so they're the ids of the snapshot and the search indexes, the
+     * database should be empty. Nothing is inserted if the source is
+     * malformed.
+     * @return number of inserted contacts
+     */
+    public int importContacts(ContactReader reader) throws IOException {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE + " (" + ID + ", "
+                + FIRST_NAME + ", " + LAST_NAME + ", " + TITLE + ", " + AVATAR + ", " + INTRODUCTION
+                + ") VALUES (?, ?, ?, ?, ?, ?)");
+        int count = 0;
+        db.beginTransaction();
+        try {
+            Contact c;
+            while ((c = reader.next()) != null) {
+                insert.bindLong(1, c.id);
+                insert.bindString(2, c.firstName);
+                insert.bindString(3, c.lastName);
+                insert.bindString(4, c.title);
+                insert.bindString(5, c.avatar);
+                insert.bindString(6, c.introduction);
+                insert.executeInsert();
+                count++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        return count;
+    }
+
+    /**
+     * Returns all contacts by id, see {@link #COLUMNS}.
+     */
+    public Cursor query() {
+        return getReadableDatabase().rawQuery("SELECT " + COLUMNS + " FROM " + TABLE
+                + " ORDER BY " + ID, null);
+    }
+
+    /**
+     * Returns the names, title and introduction of all contacts by id, to
+     * build the search indexes.
+     */
+    Cursor queryText() {
+        return getReadableDatabase().rawQuery("SELECT " + FTS_COLUMNS + " FROM " + TABLE
+                + " ORDER BY " + ID, null);
+    }
+
+    /**
+     * Returns contacts with words starting with all words of the query, in
+     * names, title or introduction, by id. See {@link #COLUMNS}.
+     */
+    public Cursor search(String query) {
+        // "al mu" -> "al* mu*", terms are AND-ed by FTS.
+        StringBuilder match = new StringBuilder();
+        for (String word : ContactSearch.tokenize(query)) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        if (match.length() == 0) {
+            return getReadableDatabase().rawQuery("SELECT " + COLUMNS + " FROM " + TABLE + " WHERE 0", null);
+        }
+        return getReadableDatabase().rawQuery("SELECT " + COLUMNS + " FROM " + TABLE
+                + " WHERE " + ID + " IN (SELECT docid FROM " + FTS_TABLE + " WHERE " + FTS_TABLE + " MATCH ?)"
+                + " ORDER BY " + ID, new String[]{match.toString()});
+    }
+
+    /**
+     * Returns the introduction of the contact with id, or "" if there's no
+     * such contact.
+     */
+    @Override
+    public String getIntroduction(int id) {
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT " + INTRODUCTION + " FROM " + TABLE
+                + " WHERE " + ID + " = ?", new String[]{String.valueOf(id)});
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : "";
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -1,22 +1,70 @@
 package io.korok.mycontacts.repos;
 
 import android.content.Context;
-import android.util.DisplayMetrics;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 import  java.lang.Math;
 
+import io.korok.mycontacts.BuildConfig;
 import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.ContactChange;
+import io.korok.mycontacts.model.ContactTable;
+import io.korok.mycontacts.model.Dictionary;
 
 public class ContactsRepo {
+    private static final String TAG = "ContactsRepo";
+
     /**
-     * Returns fake data from assets.
+     * Default paging of the snapshot. A page covers the visible avatars, the
+     * avatar and the detail list may be on different pages, each with its
+     * neighbours.
+     */
+    public static final int PAGE_SIZE = 32;
+    public static final int MAX_PAGES = 6;
+
+    /**
+     * Number of cached introductions, a few detail pages are on screen.
+     */
+    public static final int INTRODUCTION_CACHE_SIZE = 8;
+
+    /**
+     * The introduction index in the files dir, it's rebuilt when the app is
+     * updated, see {@link #sourceStamp(Context)}.
+     */
+    static final String INTRODUCTION_INDEX_FILE = "introductions.idx";
+
+    /**
+     * The variants of avatars in assets, it's generated with the atlases.
+     */
+    static final String AVATAR_MANIFEST = "atlas/avatars.manifest";
+
+    private static IntroductionLoader introductionLoader;
+    private static ContactsDatabase database;
+    private static AvatarManifest avatarManifest;
+
+    /**
+     * Returns fake data from assets. The binary snapshot is used if it's
+     * packaged, otherwise contacts.json is parsed.
      * @param context
      * @return
      */
@@ -24,26 +72,529 @@ public class ContactsRepo {
         if (context == null) {
             return Collections.emptyList();
         }
-        InputStream in = null;
+        List<Contact> contacts = loadSnapshot(context);
+        if (contacts == null) {
+            contacts = loadJson(context);
+        }
+        return contacts;
+    }
+
+    /**
+     * Returns a paged view of contacts, only recently used pages are kept in
+     * memory. The size is exact before any page is loaded. If the snapshot is
+     * missing, pages are views of the parsed contacts.json.
+     * @param context
+     * @param pageSize number of contacts in a page
+     * @param maxPages max number of resident pages
+     * @return
+     */
+    public static PagedContacts getPagedData(Context context, int pageSize, int maxPages) {
+        List<Contact> source = null;
+        if (context != null) {
+            source = loadSnapshot(context);
+            if (source == null) {
+                source = loadJson(context);
+            }
+        }
+        if (source == null) {
+            source = Collections.emptyList();
+        }
+        return new PagedContacts(source, pageSize, maxPages);
+    }
+
+    /**
+     * Returns the loader of introductions, which are not loaded with contacts
+     * from the snapshot or the database. The snapshot is mapped again here,
+     * it's O(1).
+     * @param context
+     * @return
+     */
+    public static IntroductionLoader getIntroductionLoader(Context context) {
+        if (introductionLoader == null) {
+            IntroductionLoader.Source source = null;
+            if (context != null) {
+                source = BuildConfig.CONTACTS_DATABASE ? getDatabase(context) : loadSnapshot(context);
+            }
+            introductionLoader = new IntroductionLoader(source, INTRODUCTION_CACHE_SIZE);
+        }
+        return introductionLoader;
+    }
+
+    /**
+     * Returns the contacts database, it's opened lazily on first query.
+     * @param context
+     * @return
+     */
+    public static synchronized ContactsDatabase getDatabase(Context context) {
+        if (database == null) {
+            database = new ContactsDatabase(context.getApplicationContext());
+        }
+        return database;
+    }
+
+    /**
+     * Returns all contacts of the database as a cursor-backed list, contacts
+     * are imported from contacts.json if the database is empty. It queries
+     * the database, call it in the background.
+     * Introductions are loaded with
+     * {@code new IntroductionLoader(getDatabase(context), size)}.
+     * @param context
+     * @return the list, close it when it's no longer used
+     * @see BuildConfig#CONTACTS_DATABASE
+     */
+    public static CursorContacts queryDatabase(Context context) {
+        ContactsDatabase db = getDatabase(context);
+        if (db.count() == 0) {
+            long start = SystemClock.elapsedRealtime();
+            int count = importJson(context, db);
+            Log.i(TAG, "imported " + count + " contacts in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        }
+        return new CursorContacts(db.query(), new Dictionary(), avatarResolver(context));
+    }
+
+    /**
+     * Loads contacts on executor and delivers them in batches on the main
+     * thread, so the first items can be shown before the whole file is parsed.
+     * @param context
+     * @param executor background executor
+     * @param callback receives batches on the main thread
+     * @return the task, cancel it if the callback is no longer valid
+     */
+    public static LoadTask loadAsync(Context context, Executor executor, LoadCallback callback) {
+        LoadTask task = new LoadTask(context.getApplicationContext(), callback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Receives contacts loaded by {@link #loadAsync}, methods are called on
+     * the main thread.
+     */
+    public interface LoadCallback {
+        /**
+         * A batch of contacts, in order. It may be a lazy view of the source,
+         * keep it as it is, see {@link ContactList}. Close it if it's a
+         * {@link CursorContacts}, when it's no longer used.
+         */
+        void onLoaded(List<Contact> batch);
+
+        /**
+         * All batches are delivered.
+         * @param count number of contacts
+         * @param firstItemMillis time from start to the first delivered batch
+         * @param completeMillis time from start to the last delivered batch
+         */
+        void onComplete(int count, long firstItemMillis, long completeMillis);
+
+        /**
+         * The search index is built, it's called after onComplete().
+         */
+        void onIndexed(ContactSearch search);
+
+        /**
+         * The introduction index is built or read from app storage, it's
+         * called after onIndexed().
+         */
+        void onIntroductionsIndexed(IntroductionIndex introductions);
+    }
+
+    /**
+     * LoadTask reads the snapshot or streams contacts.json, posting batches to
+     * the main thread. The snapshot is posted as one {@link PagedContacts}.
+     * With {@link BuildConfig#CONTACTS_DATABASE}, the database is posted as
+     * one {@link CursorContacts}, indexes are built from another cursor.
+     * JSON batches are {@link ContactTable}s, they start small to show the
+     * first items quickly, and grow to reduce the number of main thread
+     * messages. The search index is built after all batches are posted, then
+     * the introduction index is read from app storage, or built and saved.
+     */
+    public static class LoadTask implements Runnable {
+        static final int FIRST_BATCH = 16;
+        static final int MAX_BATCH = 1024;
+
+        private final Context context;
+        private final LoadCallback callback;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final long startTime = SystemClock.elapsedRealtime();
+        private volatile boolean cancelled;
+
+        // accessed on the main thread only.
+        private int count;
+        private long firstItemMillis = -1;
+
+        LoadTask(Context context, LoadCallback callback) {
+            this.context = context;
+            this.callback = callback;
+        }
+
+        /**
+         * Stops loading, no callback is called after this.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            Cursor texts = null;
+            try {
+                if (BuildConfig.CONTACTS_DATABASE) {
+                    publish(queryDatabase(context));
+                    complete();
+                    texts = getDatabase(context).queryText();
+                }
+                load(texts);
+            } finally {
+                if (texts != null) {
+                    texts.close();
+                }
+            }
+        }
+
+        // texts is a cursor of ContactsDatabase.queryText() if contacts are
+        // loaded from the database.
+        private void load(Cursor texts) {
+            ContactSearch.Builder search = new ContactSearch.Builder();
+            List<ContactTable> tables = new ArrayList<>();
+            ContactSnapshot snapshot = texts == null ? loadSnapshot(context) : null;
+            if (texts != null) {
+                while (!cancelled && texts.moveToNext()) {
+                    search.add(texts.getString(0), texts.getString(1), texts.getString(2));
+                }
+            } else if (snapshot != null) {
+                publish(new PagedContacts(snapshot, PAGE_SIZE, MAX_PAGES));
+                complete();
+                for (int i = 0; i < snapshot.size() && !cancelled; i++) {
+                    search.add(snapshot.getField(i, ContactSnapshot.FIRST_NAME),
+                            snapshot.getField(i, ContactSnapshot.LAST_NAME),
+                            snapshot.getField(i, ContactSnapshot.TITLE));
+                }
+            } else {
+                streamJson(search, tables);
+                complete();
+            }
+            if (cancelled) {
+                return;
+            }
+            long start = SystemClock.elapsedRealtime();
+            publishIndex(search.build());
+            Log.i(TAG, "built search index of " + search.size() + " contacts in "
+                    + (SystemClock.elapsedRealtime() - start) + "ms");
+
+            start = SystemClock.elapsedRealtime();
+            final long stamp = sourceStamp(context);
+            IntroductionIndex introductions = readIntroductionIndex(context, stamp, search.size());
+            if (introductions != null) {
+                Log.i(TAG, "read introduction index in " + (SystemClock.elapsedRealtime() - start) + "ms");
+            } else {
+                IntroductionIndex.Builder builder = new IntroductionIndex.Builder();
+                if (texts != null) {
+                    texts.moveToPosition(-1);
+                    while (!cancelled && texts.moveToNext()) {
+                        builder.add(texts.getString(3));
+                    }
+                } else if (snapshot != null) {
+                    for (int i = 0; i < snapshot.size() && !cancelled; i++) {
+                        builder.add(snapshot.getIntroduction(i));
+                    }
+                } else {
+                    for (ContactTable table : tables) {
+                        for (int row = 0; row < table.size() && !cancelled; row++) {
+                            builder.add(table.getString(row, ContactTable.INTRODUCTION));
+                        }
+                    }
+                }
+                if (cancelled) {
+                    return;
+                }
+                introductions = builder.build();
+                Log.i(TAG, "built introduction index of " + introductions.getTermCount() + " words, "
+                        + introductions.getPostingsSize() + " bytes of postings in "
+                        + (SystemClock.elapsedRealtime() - start) + "ms");
+                writeIntroductionIndex(context, introductions, stamp);
+            }
+            publishIntroductions(introductions);
+        }
+
+        // Contacts are added to the search index while they're parsed, the
+        // published tables are kept to build the introduction index.
+        private void streamJson(ContactSearch.Builder search, List<ContactTable> tables) {
+            ContactReader reader = null;
+            try {
+                InputStream in = context.getAssets().open("contacts.json");
+                reader = new ContactReader(new InputStreamReader(in, "UTF-8"));
+
+                int batchSize = FIRST_BATCH;
+                // dictionaries are shared by batches, codes are the same in all tables.
+                Dictionary titles = new Dictionary();
+                Dictionary avatars = avatarDictionary(context);
+                ContactTable.Builder batch = new ContactTable.Builder(batchSize, titles, avatars);
+                Contact c;
+                while (!cancelled && (c = reader.next()) != null) {
+                    batch.add(c);
+                    search.add(c.firstName, c.lastName, c.title);
+                    if (batch.size() == batchSize) {
+                        ContactTable table = batch.build();
+                        tables.add(table);
+                        publish(table);
+                        batchSize = Math.min(batchSize * 2, MAX_BATCH);
+                        batch = new ContactTable.Builder(batchSize, titles, avatars);
+                    }
+                }
+                if (batch.size() > 0) {
+                    ContactTable table = batch.build();
+                    tables.add(table);
+                    publish(table);
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (Exception ignore){}
+                }
+            }
+        }
+
+        private void publish(final List<Contact> batch) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        if (batch instanceof CursorContacts) {
+                            ((CursorContacts) batch).close();
+                        }
+                        return;
+                    }
+                    if (firstItemMillis < 0) {
+                        firstItemMillis = SystemClock.elapsedRealtime() - startTime;
+                    }
+                    count += batch.size();
+                    callback.onLoaded(batch);
+                }
+            });
+        }
+
+        private void publishIndex(final ContactSearch search) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        callback.onIndexed(search);
+                    }
+                }
+            });
+        }
+
+        private void publishIntroductions(final IntroductionIndex introductions) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        callback.onIntroductionsIndexed(introductions);
+                    }
+                }
+            });
+        }
+
+        private void complete() {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        return;
+                    }
+                    long completeMillis = SystemClock.elapsedRealtime() - startTime;
+                    Log.i(TAG, "loaded " + count + " contacts, first item: " + firstItemMillis
+                            + "ms, complete: " + completeMillis + "ms");
+                    callback.onComplete(count, firstItemMillis, completeMillis);
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies a change feed to contacts, the diff is computed on executor.
+     * Call it on the main thread.
+     * @param contacts the current contacts
+     * @param changes adds, updates and removes, by {@link Contact#id}
+     * @param executor background executor
+     * @param callback receives the new list on the main thread
+     * @return the task, cancel it if the callback is no longer valid
+     */
+    public static ChangeTask applyChanges(ContactList contacts, List<ContactChange> changes,
+                                          Executor executor, ChangeCallback callback) {
+        ChangeTask task = new ChangeTask(contacts, changes, executor, callback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Receives the result of {@link #applyChanges}, it's called on the main
+     * thread.
+     */
+    public interface ChangeCallback {
+        /**
+         * Set the new list to adapters, then dispatch the updates of diff to
+         * them, see {@link ContactDiff#dispatchUpdatesTo}.
+         */
+        void onChanged(ContactList contacts, ContactDiff diff);
+    }
+
+    /**
+     * ChangeTask computes a {@link ContactDiff} on a copy of the list. If the
+     * list was changed (e.g. a batch was appended) before the diff is
+     * delivered, it's computed again from the new list.
+     */
+    public static class ChangeTask implements Runnable {
+        private final ContactList contacts;
+        private final List<ContactChange> changes;
+        private final Executor executor;
+        private final ChangeCallback callback;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private volatile boolean cancelled;
+
+        // the copy of the list of this run, created on the main thread.
+        private volatile ContactList copy;
+
+        ChangeTask(ContactList contacts, List<ContactChange> changes, Executor executor, ChangeCallback callback) {
+            this.contacts = contacts;
+            this.changes = new ArrayList<>(changes);
+            this.executor = executor;
+            this.callback = callback;
+            this.copy = contacts.copy();
+        }
+
+        /**
+         * Stops it, no callback is called after this.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final ContactList from = copy;
+            long start = SystemClock.elapsedRealtime();
+            final ContactDiff diff = ContactDiff.compute(from, changes);
+            Log.i(TAG, "applied " + changes.size() + " changes to " + from.size() + " contacts in "
+                    + (SystemClock.elapsedRealtime() - start) + "ms, " + diff.getUpdateCount() + " updates");
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        return;
+                    }
+                    if (contacts.size() != from.size() || contacts.getChunkCount() != from.getChunkCount()) {
+                        // appended in the meantime, compute it again.
+                        copy = contacts.copy();
+                        executor.execute(ChangeTask.this);
+                        return;
+                    }
+                    callback.onChanged(diff.getContacts(), diff);
+                }
+            });
+        }
+    }
+
+    /**
+     * Maps contacts.bin into memory, contacts are decoded lazily. Returns null
+     * if the snapshot is missing or invalid.
+     * @param context
+     * @return
+     */
+    static ContactSnapshot loadSnapshot(final Context context) {
+        AssetFileDescriptor fd = null;
         try {
-            in = context.getAssets().open("contacts.json");
-            byte[] buffer = new byte[in.available()];
-            in.read(buffer);
-            String str = new String(buffer, "UTF-8");
-            JSONArray array = new JSONArray(str);
-
-            List<Contact> contacts = new ArrayList<>(array.length());
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject json = array.getJSONObject(i);
-                Contact c = new Contact();
-                c.firstName = json.optString("first_name");
-                c.lastName  = json.optString("last_name");
-                c.title     = json.optString("title");
-                c.avatar    = getImageByDensity(context, json.optString("avatar_filename"));
-                c.introduction = json.optString("introduction");
-                contacts.add(c);
+            // openFd() only works with uncompressed assets, see `noCompress`.
+            fd = context.getAssets().openFd("contacts.bin");
+            FileChannel channel = fd.createInputStream().getChannel();
+            // resident contacts share the instances of titles and avatars.
+            final Dictionary titles = new Dictionary();
+            final Dictionary avatars = avatarDictionary(context);
+            return new ContactSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength())) {
+                @Override
+                public Contact get(int index) {
+                    Contact c = super.get(index);
+                    c.title = titles.intern(c.title);
+                    c.avatar = avatars.intern(c.avatar);
+                    return c;
+                }
+            };
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        } finally {
+            if (fd != null) {
+                try {
+                    fd.close();
+                } catch (Exception ignore){}
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Imports contacts.json into the database.
+     * @param context
+     * @param db
+     * @return number of imported contacts
+     */
+    static int importJson(Context context, ContactsDatabase db) {
+        ContactReader reader = null;
+        try {
+            InputStream in = context.getAssets().open("contacts.json");
+            reader = new ContactReader(new InputStreamReader(in, "UTF-8"));
+            return db.importContacts(reader);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (Exception ignore){}
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a stamp of the bundled contacts, they only change with the app,
+     * so it's the time of the last install or update.
+     * @param context
+     * @return
+     */
+    static long sourceStamp(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the saved introduction index, returns null if it's missing, or it
+     * was built from other contacts.
+     * @param context
+     * @param stamp stamp of the current contacts
+     * @param count number of the current contacts
+     * @return
+     */
+    static IntroductionIndex readIntroductionIndex(Context context, long stamp, int count) {
+        File file = new File(context.getFilesDir(), INTRODUCTION_INDEX_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            IntroductionIndex index = IntroductionIndex.read(in, stamp);
+            if (index != null && index.size() == count) {
+                return index;
             }
-            return contacts;
         } catch (Exception ex) {
             ex.printStackTrace();
         } finally {
@@ -53,33 +604,116 @@ public class ContactsRepo {
                 } catch (Exception ignore){}
             }
         }
+        return null;
+    }
+
+    /**
+     * Saves the introduction index, it's written to a temporary file first,
+     * so a reader never sees a partial index.
+     * @param context
+     * @param index
+     * @param stamp stamp of the indexed contacts
+     */
+    static void writeIntroductionIndex(Context context, IntroductionIndex index, long stamp) {
+        File file = new File(context.getFilesDir(), INTRODUCTION_INDEX_FILE);
+        File temp = new File(context.getFilesDir(), INTRODUCTION_INDEX_FILE + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            index.write(out, stamp);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                Log.w(TAG, "failed to save " + file);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (Exception ignore){}
+            }
+        }
+    }
+
+    /**
+     * Parses contacts.json into a {@link ContactTable}. Contacts are parsed
+     * one by one with {@link ContactReader}, the whole file is never held in
+     * memory.
+     * @param context
+     * @return
+     */
+    static List<Contact> loadJson(Context context) {
+        ContactReader reader = null;
+        try {
+            InputStream in = context.getAssets().open("contacts.json");
+            reader = new ContactReader(new InputStreamReader(in, "UTF-8"));
+
+            ContactTable.Builder contacts = new ContactTable.Builder(16, new Dictionary(), avatarDictionary(context));
+            Contact c;
+            while ((c = reader.next()) != null) {
+                contacts.add(c);
+            }
+            return contacts.build();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (Exception ignore){}
+            }
+        }
         return Collections.emptyList();
     }
 
     /**
-     * Returns the right image name by display density.
+     * Returns a dictionary of avatars, the variant of the display density is
+     * resolved once per distinct avatar, see {@link AvatarManifest}.
+     * @param context
+     * @return
+     */
+    static Dictionary avatarDictionary(Context context) {
+        return new Dictionary(avatarResolver(context));
+    }
+
+    /**
+     * Returns the mapper of an avatar to the variant of the display density,
+     * or null if there's no manifest.
      * @param context
-     * @param file
      * @return
      */
-    static String getImageByDensity(Context context, String file) {
-        if (file == null || context == null) {
+    static Dictionary.Mapper avatarResolver(Context context) {
+        AvatarManifest manifest = getAvatarManifest(context);
+        if (manifest == null) {
             return null;
         }
-        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
-        int level = Math.round(metrics.density);
-        String name = file.substring(0, file.length()-4);
-        switch (level) {
-            case 3:
-                name += "@3x.png";
-                break;
-            case 2:
-                name += "@2x.png";
-                break;
-            case 1:
-            default:
-                name += ".png";
-        }
-        return name;
+        return manifest.resolver(context.getResources().getDisplayMetrics().density);
+    }
+
+    /**
+     * Returns the manifest of avatars, it's read once. Returns null if it's
+     * not packaged.
+     * @param context
+     * @return
+     */
+    public static synchronized AvatarManifest getAvatarManifest(Context context) {
+        if (avatarManifest == null) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(context.getAssets().open(AVATAR_MANIFEST)));
+                avatarManifest = AvatarManifest.read(in);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (Exception ignore){}
+                }
+            }
+        }
+        return avatarManifest;
     }
 }
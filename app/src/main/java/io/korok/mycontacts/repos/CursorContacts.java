@@ -0,0 +1,93 @@
+package io.korok.mycontacts.repos;
+
+import android.database.Cursor;
+import android.util.LruCache;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+
+import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.Dictionary;
+
+/**
+ * CursorContacts is a list view of a cursor from {@link ContactsDatabase}.
+ * A SQLite cursor only keeps one window of rows in memory, rows are read when
+ * they're bound, so memory is flat regardless of the number of contacts.
+ *
+ * Contacts have no introduction, {@link Contact#introductionIndex} is the id,
+ * load it from the database with {@link IntroductionLoader}.
+ *
+ * Titles are interned, there are few of them. Avatars are distinct, their
+ * variants are resolved through a small LRU cache, so nothing is kept per
+ * row which was read.
+ *
+ * It's not thread-safe, use it on the main thread, and close it when the
+ * adapters no longer use it.
+ */
+public class CursorContacts extends AbstractList<Contact> implements Closeable {
+    /**
+     * number of resolved avatars kept, a few screens of avatars.
+     */
+    static final int AVATAR_CACHE_SIZE = 64;
+
+    private final Cursor cursor;
+    private final int count;
+    private final Dictionary titles;
+    private final Dictionary.Mapper avatarMapper;
+    private final LruCache<String, String> avatars = new LruCache<>(AVATAR_CACHE_SIZE);
+
+    /**
+     * The count is queried here, it runs the query, so create it in the
+     * background.
+     * @param cursor a cursor of {@link ContactsDatabase#COLUMNS}
+     * @param titles resident contacts share the instances of titles
+     * @param avatarMapper resolves the file of an avatar, e.g. its variant,
+     *                     or null to use the name as it is
+     */
+    public CursorContacts(Cursor cursor, Dictionary titles, Dictionary.Mapper avatarMapper) {
+        this.cursor = cursor;
+        this.count = cursor.getCount();
+        this.titles = titles;
+        this.avatarMapper = avatarMapper;
+    }
+
+    @Override
+    public Contact get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+        }
+        cursor.moveToPosition(index);
+        Contact c = new Contact();
+        c.id = cursor.getLong(0);
+        c.introductionIndex = cursor.getInt(0);
+        c.firstName = cursor.getString(1);
+        c.lastName = cursor.getString(2);
+        c.title = titles.intern(cursor.getString(3));
+        c.avatar = avatar(cursor.getString(4));
+        return c;
+    }
+
+    private String avatar(String name) {
+        if (avatarMapper == null || name == null) {
+            return name;
+        }
+        String file = avatars.get(name);
+        if (file == null) {
+            file = avatarMapper.map(name);
+            if (file != null) {
+                avatars.put(name, file);
+            }
+        }
+        return file;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
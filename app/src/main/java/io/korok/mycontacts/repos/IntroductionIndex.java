@@ -0,0 +1,270 @@
+package io.korok.mycontacts.repos;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IntroductionIndex is an inverted index of the words in introductions. The
+ * postings of a word are the positions of the contacts which contain it,
+ * stored as varint-encoded deltas in one shared byte array, most deltas take
+ * one byte.
+ *
+ * A query is a list of words, the result is the positions of contacts which
+ * contain all of them. The rarest word is decoded first, other words only
+ * filter it.
+ *
+ * An index is immutable, it's safe on any thread. Build it with
+ * {@link Builder}, or read it with {@link #read(DataInputStream, long)}.
+ */
+public class IntroductionIndex {
+    static final int MAGIC = 0x434c4949; // 'CLII'
+    static final int VERSION = 1;
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * sorted distinct words, postings of terms[i] are encoded in
+     * postings[offsets[i]] .. postings[offsets[i+1]].
+     */
+    private final String[] terms;
+    private final int[] offsets;
+    private final int[] frequencies;
+    private final byte[] postings;
+    private final int count;
+
+    private IntroductionIndex(String[] terms, int[] offsets, int[] frequencies, byte[] postings, int count) {
+        this.terms = terms;
+        this.offsets = offsets;
+        this.frequencies = frequencies;
+        this.postings = postings;
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of indexed contacts.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of distinct words.
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Returns the size of the encoded postings in bytes.
+     */
+    public int getPostingsSize() {
+        return postings.length;
+    }
+
+    /**
+     * Returns positions of contacts whose introduction contains all words of
+     * the query, in ascending order.
+     */
+    public int[] search(String query) {
+        final String[] words = ContactSearch.tokenize(query);
+        if (words.length == 0) {
+            return EMPTY;
+        }
+        final int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = Arrays.binarySearch(terms, words[i]);
+            if (ids[i] < 0) {
+                return EMPTY;
+            }
+        }
+        // the rarest word first, the result is never larger than it.
+        int rarest = 0;
+        for (int i = 1; i < ids.length; i++) {
+            if (frequencies[ids[i]] < frequencies[ids[rarest]]) {
+                rarest = i;
+            }
+        }
+        int[] result = decode(ids[rarest]);
+        int n = result.length;
+        for (int i = 0; i < ids.length && n > 0; i++) {
+            if (i != rarest) {
+                n = intersect(result, n, ids[i]);
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private int[] decode(int term) {
+        final int[] out = new int[frequencies[term]];
+        int p = offsets[term];
+        int pos = 0;
+        for (int i = 0; i < out.length; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[p++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            pos += delta;
+            out[i] = pos;
+        }
+        return out;
+    }
+
+    // Keeps the first n positions of result which are also in the postings of
+    // term, both are sorted, so it's a merge. Returns the new size.
+    private int intersect(int[] result, int n, int term) {
+        int p = offsets[term];
+        final int end = offsets[term + 1];
+        int pos = 0;
+        int kept = 0;
+        int i = 0;
+        while (i < n && p < end) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[p++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            pos += delta;
+            while (i < n && result[i] < pos) {
+                i++;
+            }
+            if (i < n && result[i] == pos) {
+                result[kept++] = pos;
+                i++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Writes the index, stamp identifies the source, see read().
+     */
+    public void write(DataOutputStream out, long stamp) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(stamp);
+        out.writeInt(count);
+        out.writeInt(terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            out.writeUTF(terms[i]);
+            out.writeInt(offsets[i]);
+            out.writeInt(frequencies[i]);
+        }
+        out.writeInt(postings.length);
+        out.write(postings);
+    }
+
+    /**
+     * Reads an index written by write().
+     * @param stamp stamp of the current source
+     * @return the index, or null if it was written for another source
+     * @throws IOException if it's not a valid index
+     */
+    public static IntroductionIndex read(DataInputStream in, long stamp) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an introduction index");
+        }
+        if (in.readLong() != stamp) {
+            return null;
+        }
+        final int count = in.readInt();
+        final int n = in.readInt();
+        String[] terms = new String[n];
+        int[] offsets = new int[n + 1];
+        int[] frequencies = new int[n];
+        for (int i = 0; i < n; i++) {
+            terms[i] = in.readUTF();
+            offsets[i] = in.readInt();
+            frequencies[i] = in.readInt();
+        }
+        byte[] postings = new byte[in.readInt()];
+        in.readFully(postings);
+        offsets[n] = postings.length;
+        return new IntroductionIndex(terms, offsets, frequencies, postings, count);
+    }
+
+    /**
+     * Builder collects words of introductions, positions must be added in order.
+     */
+    public static class Builder {
+        private final Map<String, Postings> words = new HashMap<>();
+        private int count;
+
+        /**
+         * Adds the introduction of the contact at the next position.
+         */
+        public Builder add(String introduction) {
+            final int position = count++;
+            for (String word : ContactSearch.tokenize(introduction)) {
+                Postings p = words.get(word);
+                if (p == null) {
+                    p = new Postings();
+                    words.put(word, p);
+                }
+                p.add(position);
+            }
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public IntroductionIndex build() {
+            final String[] terms = words.keySet().toArray(new String[words.size()]);
+            Arrays.sort(terms);
+            int total = 0;
+            for (Postings p : words.values()) {
+                total += p.size;
+            }
+            final int[] offsets = new int[terms.length + 1];
+            final int[] frequencies = new int[terms.length];
+            final byte[] postings = new byte[total];
+            int n = 0;
+            for (int i = 0; i < terms.length; i++) {
+                Postings p = words.get(terms[i]);
+                offsets[i] = n;
+                frequencies[i] = p.frequency;
+                System.arraycopy(p.bytes, 0, postings, n, p.size);
+                n += p.size;
+            }
+            offsets[terms.length] = n;
+            return new IntroductionIndex(terms, offsets, frequencies, postings, count);
+        }
+    }
+
+    // Varint-encoded deltas of one word, a position is only added once.
+    private static class Postings {
+        byte[] bytes = new byte[4];
+        int size;
+        int frequency;
+        int last = -1;
+
+        void add(int position) {
+            if (position == last) {
+                return;
+            }
+            int delta = last < 0 ? position : position - last;
+            last = position;
+            frequency++;
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((delta & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((delta & 0x7f) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[size++] = (byte) delta;
+        }
+    }
+}
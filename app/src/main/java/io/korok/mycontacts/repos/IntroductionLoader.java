@@ -0,0 +1,95 @@
+package io.korok.mycontacts.repos;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.korok.mycontacts.model.Contact;
+
+/**
+ * IntroductionLoader loads {@link Contact#introduction} on demand. Only the
+ * detail pages on screen show it, so only the recently used introductions are
+ * kept in a small LRU cache.
+ *
+ * It's not thread-safe, use it on the main thread.
+ */
+public class IntroductionLoader {
+
+    /**
+     * Where introductions live, indexed by {@link Contact#introductionIndex}.
+     */
+    public interface Source {
+        String getIntroduction(int index);
+    }
+
+    private final Source source;
+    private final int maxSize;
+    private final Map<Integer, String> cache;
+
+    private int hits;
+    private int misses;
+
+    /**
+     * @param source the source, may be null if all contacts are loaded eagerly
+     * @param maxSize max number of cached introductions
+     */
+    public IntroductionLoader(Source source, final int maxSize) {
+        this.source = source;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<Integer, String>(maxSize + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the introduction of the contact, loads it if it's not loaded.
+     */
+    public String get(Contact c) {
+        if (c.introduction != null || c.introductionIndex < 0 || source == null) {
+            return c.introduction;
+        }
+        String text = cache.get(c.introductionIndex);
+        if (text == null) {
+            misses++;
+            text = source.getIntroduction(c.introductionIndex);
+            cache.put(c.introductionIndex, text);
+        } else {
+            hits++;
+        }
+        return text;
+    }
+
+    /**
+     * Returns the number of cached introductions.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Drops the least recently used introductions, until at most size are
+     * cached.
+     */
+    public void trimToSize(int size) {
+        final Iterator<Integer> it = cache.keySet().iterator();
+        for (int n = cache.size(); n > Math.max(0, size) && it.hasNext(); n--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public int getHitCount() {
+        return hits;
+    }
+
+    public int getMissCount() {
+        return misses;
+    }
+}
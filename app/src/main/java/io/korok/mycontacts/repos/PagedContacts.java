@@ -0,0 +1,112 @@
+package io.korok.mycontacts.repos;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.korok.mycontacts.model.Contact;
+
+/**
+ * PagedContacts is a windowed view of a random-access source, such as
+ * {@link ContactSnapshot}. Contacts are loaded a page at a time and only the
+ * recently used pages stay resident, so memory depends on where the lists are,
+ * not on the size of the source.
+ *
+ * The size is the exact size of the source, it's known before any page is
+ * loaded. It's not thread-safe, use it on the main thread.
+ */
+public class PagedContacts extends AbstractList<Contact> {
+    private final List<Contact> source;
+    private final int pageSize;
+    private final int maxPages;
+    private final Map<Integer, Contact[]> pages;
+
+    private int loads;
+
+    /**
+     * @param source random-access source, get() is called once per contact per page load
+     * @param pageSize number of contacts in a page
+     * @param maxPages max number of resident pages
+     */
+    public PagedContacts(List<Contact> source, int pageSize, final int maxPages) {
+        if (pageSize <= 0 || maxPages <= 0) {
+            throw new IllegalArgumentException("pageSize and maxPages must be positive");
+        }
+        this.source = source;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        // access-ordered, the eldest entry is the least recently used page.
+        this.pages = new LinkedHashMap<Integer, Contact[]>(maxPages + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Contact[]> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public Contact get(int index) {
+        if (index < 0 || index >= source.size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + source.size());
+        }
+        final int page = index / pageSize;
+        Contact[] contacts = pages.get(page);
+        if (contacts == null) {
+            contacts = load(page);
+            pages.put(page, contacts);
+        }
+        return contacts[index - page * pageSize];
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the number of pages in memory.
+     */
+    public int getResidentPages() {
+        return pages.size();
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Drops the least recently used pages, until at most count pages are in
+     * memory. They're loaded again when they're used.
+     */
+    public void trimToSize(int count) {
+        final Iterator<Integer> it = pages.keySet().iterator();
+        for (int n = pages.size(); n > Math.max(0, count) && it.hasNext(); n--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns how many pages were loaded from the source.
+     */
+    public int getLoadCount() {
+        return loads;
+    }
+
+    private Contact[] load(int page) {
+        final int start = page * pageSize;
+        final int end = Math.min(start + pageSize, source.size());
+        Contact[] contacts = new Contact[end - start];
+        for (int i = start; i < end; i++) {
+            contacts[i - start] = source.get(i);
+        }
+        loads++;
+        return contacts;
+    }
+}
@@ -0,0 +1,106 @@
+package io.korok.mycontacts.view;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * CLFrameMonitor counts the frames of each scroll of a RecyclerView (from
+ * drag or fling to idle), and the frames it missed: a frame which took more
+ * than 1.5 vsync intervals misses the ones in between. Each scroll is logged.
+ *
+ * The latency of a scroll is the time from its start to the next frame, it
+ * includes the work of the first scroll step, e.g. the pages which are created
+ * and bound when the first swipe starts.
+ *
+ * It's a scroll listener, add it to the RecyclerView.
+ */
+public class CLFrameMonitor extends RecyclerView.OnScrollListener implements Choreographer.FrameCallback {
+    private static final String TAG = "CLFrameMonitor";
+
+    private final String name;
+    private final long frameIntervalNanos;
+
+    private boolean running;
+    private long lastFrameNanos;
+    private int frames;
+    private int missed;
+    private long startNanos;
+    private long latencyNanos;
+    private long firstLatencyNanos = -1;
+
+    private int totalFrames;
+    private int totalMissed;
+
+    public CLFrameMonitor(Context context, String name) {
+        this.name = name;
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float rate = wm == null ? 60 : wm.getDefaultDisplay().getRefreshRate();
+        this.frameIntervalNanos = (long) (1e9 / (rate > 0 ? rate : 60));
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE && !running) {
+            running = true;
+            lastFrameNanos = 0;
+            frames = 0;
+            missed = 0;
+            startNanos = System.nanoTime();
+            latencyNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE && running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+            totalFrames += frames;
+            totalMissed += missed;
+            if (firstLatencyNanos < 0) {
+                firstLatencyNanos = latencyNanos;
+            }
+            Log.i(TAG, name + " scroll: " + frames + " frames, " + missed + " missed, latency "
+                    + latencyNanos / 1000000f + " ms");
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (lastFrameNanos == 0) {
+            latencyNanos = Math.max(0, frameTimeNanos - startNanos);
+        } else {
+            final long interval = frameTimeNanos - lastFrameNanos;
+            frames++;
+            if (interval * 2 > frameIntervalNanos * 3) {
+                missed += (int) ((interval + frameIntervalNanos / 2) / frameIntervalNanos) - 1;
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Returns the number of frames of all finished scrolls.
+     */
+    public int getFrameCount() {
+        return totalFrames;
+    }
+
+    /**
+     * Returns the number of missed frames of all finished scrolls.
+     */
+    public int getMissedFrameCount() {
+        return totalMissed;
+    }
+
+    /**
+     * Returns the latency of the first scroll in milliseconds, or -1 if it
+     * hasn't finished.
+     */
+    public float getFirstScrollLatencyMillis() {
+        return firstLatencyNanos < 0 ? -1 : firstLatencyNanos / 1000000f;
+    }
+}
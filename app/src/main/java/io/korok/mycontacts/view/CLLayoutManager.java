@@ -3,34 +3,167 @@ package io.korok.mycontacts.view;
 import android.content.Context;
 import android.graphics.PointF;
 import android.support.v7.widget.LinearSmoothScroller;
-import android.support.v7.widget.LinearSnapHelper;
 import android.support.v7.widget.RecyclerView;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
 
 /**
  * CLLayoutManager is a Center-Locking, horizontal LayoutManager. It uses
- * SnapHelper to lock child in center.
+ * {@link CLSnapHelper} to lock child in center.
+ *
+ * It supports RecyclerView's prefetch, items ahead of the scroll direction are
+ * created and bound in idle frame time, more of them when it scrolls fast, see
+ * {@link #setPrefetchDistance(int, int)}.
+ *
+ * If all items have the same size, {@link #setFixedItemSize(boolean)} skips
+ * measuring: a view is only measured if it requested a layout, edges of items
+ * are computed from the width of the view type.
+ *
+ * In circular mode ({@link #setCircular(boolean)}) the last item is followed
+ * by the first one, positions wrap around the item count. Only the items on
+ * screen are laid out, like the normal mode, and an item is never laid out
+ * twice: if the items are narrower than the list, the space after them is
+ * empty until the first item scrolls out.
  */
 public class CLLayoutManager extends RecyclerView.LayoutManager implements RecyclerView.SmoothScroller.ScrollVectorProvider {
     /**
      * snapHelper used to lock the child view in center of parent.
      */
-    private LinearSnapHelper snapHelper = new LinearSnapHelper();
+    private final CLSnapHelper snapHelper = new CLSnapHelper();
 
     private RecyclerView recyclerView;
 
     /**
      * the fist visible child view, it's always the first child in parent.
+     * It's an adapter position in circular mode too.
      */
     private int firstPosition;
 
+    /**
+     * position to center in the next layout, see scrollToPosition().
+     */
+    private int pendingPosition = RecyclerView.NO_POSITION;
+
+    /**
+     * number of items prefetched ahead, when it scrolls slowly and fast.
+     */
+    private int prefetchDistance = 1;
+    private int maxPrefetchDistance = 4;
+
+    /**
+     * a fast scroll prefetches the items which it passes in this many frames.
+     */
+    private static final int PREFETCH_LOOKAHEAD_FRAMES = 4;
+
+    /**
+     * see setFixedItemSize().
+     */
+    private boolean fixedItemSize;
+
+    /**
+     * decorated width by view type, measured once if items have fixed size.
+     */
+    private final SparseIntArray itemWidths = new SparseIntArray();
+
+    /**
+     * a smooth scroll further than this many items jumps to the target first,
+     * so it doesn't lay out every item in between.
+     */
+    private static final int SMOOTH_SCROLL_MAX_ITEMS = 8;
+
+    /**
+     * see setCircular().
+     */
+    private boolean circular;
+
     public CLLayoutManager() {
     }
 
+    /**
+     * Tells that all items have the same size, and binding never changes it.
+     * Then a view is only measured if it requested a layout, e.g. it has
+     * never been measured, its width is the width of its view type.
+     */
+    public void setFixedItemSize(boolean fixed) {
+        if (fixedItemSize != fixed) {
+            fixedItemSize = fixed;
+            itemWidths.clear();
+            requestLayout();
+        }
+    }
+
+    /**
+     * Returns the decorated width of items if they have fixed size and an
+     * item has been measured, otherwise -1.
+     */
+    public int getFixedItemWidth() {
+        return fixedItemSize && itemWidths.size() > 0 ? itemWidths.valueAt(0) : -1;
+    }
+
+    /**
+     * Makes the list wrap around: the first item follows the last one, it
+     * scrolls endlessly in both directions.
+     *
+     * It's API only, the app doesn't use it: the avatar list is synced with
+     * the detail pager, which doesn't wrap.
+     */
+    public void setCircular(boolean circular) {
+        if (this.circular != circular) {
+            this.circular = circular;
+            requestLayout();
+        }
+    }
+
+    public boolean isCircular() {
+        return circular;
+    }
+
+    // Returns the adapter position of the item after(delta > 0) or before
+    // (delta < 0) position, NO_POSITION if it's out of the list.
+    private int step(int position, int delta, int count) {
+        final int p = position + delta;
+        if (circular) {
+            return ((p % count) + count) % count;
+        }
+        return p >= 0 && p < count ? p : RecyclerView.NO_POSITION;
+    }
+
+    // Returns the number of items from position to target, the shorter way
+    // around in circular mode.
+    private int distance(int position, int target) {
+        int d = target - position;
+        final int count = getItemCount();
+        if (circular && count > 0 && Math.abs(d) > count / 2) {
+            d -= d > 0 ? count : -count;
+        }
+        return d;
+    }
+
+    /**
+     * Sets the number of items to prefetch ahead of the scroll direction. It
+     * grows with the scroll speed, from min to max items.
+     */
+    public void setPrefetchDistance(int min, int max) {
+        this.prefetchDistance = Math.max(0, min);
+        this.maxPrefetchDistance = Math.max(this.prefetchDistance, max);
+    }
+
+    public int getMaxPrefetchDistance() {
+        return maxPrefetchDistance;
+    }
+
+    /**
+     * Returns the snap helper, listen to it for the position the list settles
+     * on.
+     */
+    public CLSnapHelper getSnapHelper() {
+        return snapHelper;
+    }
+
     public void lockCenter(final RecyclerView recyclerView) {
         this.recyclerView = recyclerView;
         snapHelper.attachToRecyclerView(recyclerView);
@@ -54,15 +187,9 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
      * @param v
      */
     private void smoothScrollToPosition(View v) {
-        View snap = snapHelper.findSnapView(this);
-        if (snap != v) {
-            recyclerView.smoothScrollToPosition(getPosition(v));
-        } else {
-            final int mid = getWidth()/2;
-            final int pos = snap.getLeft() + snap.getWidth()/2;
-            if (Math.abs(mid-pos) < 4) {
-                recyclerView.smoothScrollToPosition(getPosition(v));
-            }
+        final int dx = snapHelper.distanceToCenter(this, v);
+        if (dx != 0) {
+            recyclerView.smoothScrollBy(dx, 0);
         }
     }
 
@@ -85,24 +212,34 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         }
 
         // No data changes, just return.
-        if (state.isPreLayout() || (state.getItemCount() != 0 && !state.didStructureChange())) {
+        if (state.isPreLayout() || (state.getItemCount() != 0 && !state.didStructureChange()
+                && pendingPosition == RecyclerView.NO_POSITION)) {
             return;
         }
 
         // For the first time, we should layout the child from center, then we
         // just layout from left to right by the edge of the first visible item.
+        // Jumping to a position is the same as the first time.
         final int parentRight = getWidth();
         final int count = getItemCount();
 
+        if (pendingPosition != RecyclerView.NO_POSITION) {
+            firstPosition = Math.min(pendingPosition, count - 1);
+            pendingPosition = RecyclerView.NO_POSITION;
+            detachAndScrapAttachedViews(recycler);
+        } else if (firstPosition >= count) {
+            firstPosition = count - 1;
+        }
+
         int left = 0;
+        // the first child is centered by its width, once it's measured.
+        boolean center = false;
         if (getChildCount() > 0) {
             left = getChildAt(0).getLeft();
+        } else if (getFixedItemWidth() >= 0) {
+            left = (parentRight-getFixedItemWidth())/2;
         } else {
-            View scrap = recycler.getViewForPosition(0);
-            measureChildWithMargins(scrap, 0, 0);
-            int w = getDecoratedMeasuredWidth(scrap);
-            left = (parentRight-w)/2;
-            recycler.recycleView(scrap);
+            center = true;
         }
 
         int right  = 0;
@@ -113,17 +250,36 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         detachAndScrapAttachedViews(recycler);
 
         // start layout horizontally.
-        for(int i = firstPosition; i < count && left < parentRight ; i++, left=right) {
+        for(int i = firstPosition; i != RecyclerView.NO_POSITION && left < parentRight && getChildCount() < count;
+                i = step(i, 1, count), left=right) {
             View child = recycler.getViewForPosition(i);
             addView(child);
             {
                 // size of the child
-                measureChildWithMargins(child, 0, 0);
-                int width = getDecoratedMeasuredWidth(child);
+                int width = measure(child);
+                if (center) {
+                    left = (parentRight-width)/2;
+                    center = false;
+                }
                 right = left + width;
                 layoutDecoratedWithMargins(child, left, top, right, bottom);
             }
         }
+
+        // Fill the space before the first child, if it's not at the start.
+        fillWhenScrollRight(-1, recycler);
+    }
+
+    /**
+     * Centers the item at position, without animation.
+     */
+    @Override
+    public void scrollToPosition(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return;
+        }
+        pendingPosition = position;
+        requestLayout();
     }
 
     @Override
@@ -147,7 +303,9 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         int delta = -dx;
         int mid = getWidth()/2;
         View child;
-        if (dx > 0) {
+        if (circular) {
+            // no end.
+        } else if (dx > 0) {
             if (getPosition(getChildAt(getChildCount() - 1)) == getItemCount() - 1) {
                 child = getChildAt(getChildCount() - 1);
                 delta = -Math.max(0, Math.min(dx, (child.getRight() - child.getLeft()) / 2 + child.getLeft() - mid));
@@ -174,6 +332,38 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         return -delta;
     }
 
+    /**
+     * Tells the GapWorker which items will be shown next: the items after the
+     * last child if it scrolls left, before the first child if it scrolls
+     * right. dx is the scroll of the last frame, it's the speed.
+     */
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry registry) {
+        if (getChildCount() == 0 || dx == 0) {
+            return;
+        }
+        final boolean toEnd = dx > 0;
+        final View edge = getChildAt(toEnd ? getChildCount() - 1 : 0);
+        final int width = getDecoratedRight(edge) - getDecoratedLeft(edge);
+        if (width <= 0) {
+            return;
+        }
+        final int items = Math.min(maxPrefetchDistance,
+                prefetchDistance + Math.abs(dx) * PREFETCH_LOOKAHEAD_FRAMES / width);
+        // pixels to scroll before the next item is visible.
+        final int distance = Math.max(0, toEnd ? getDecoratedRight(edge) - getWidth() : -getDecoratedLeft(edge));
+        final int position = getPosition(edge);
+        final int count = state.getItemCount();
+        for (int i = 1; i <= items; i++) {
+            final int p = step(position, toEnd ? i : -i, count);
+            if (p == RecyclerView.NO_POSITION) {
+                break;
+            }
+            registry.addPosition(p, distance + (i - 1) * width);
+        }
+    }
+
     // If there is free space in left, insert a child view at 0.
     private void fillWhenScrollRight(int dx, RecyclerView.Recycler recycler) {
         if (getChildCount() <= 0 || dx >=0) {
@@ -184,11 +374,13 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         int offsetX = getDecoratedLeft(first);
         int hangingLeft = dx; // CAUTION: value < 0
         int height = getHeight();
-        for(int i = position-1; i >=0 && offsetX > hangingLeft; i--) {
+        final int count = getItemCount();
+        // in circular mode, all items may be children already.
+        for(int i = step(position, -1, count); i != RecyclerView.NO_POSITION && offsetX > hangingLeft
+                && getChildCount() < count; i = step(i, -1, count)) {
             View v = recycler.getViewForPosition(i);
             addView(v, 0);
-            measureChildWithMargins(v, 0, 0);
-            int width = getDecoratedMeasuredWidth(v);
+            int width = measure(v);
             layoutDecorated(v,  offsetX-width, 0, offsetX, height);
             offsetX -= width;
             firstPosition = i;
@@ -207,11 +399,11 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         int hangingRight = getWidth() + dx;
         int height = getHeight();
 
-        for (int i = position+1; i < count && offsetX < hangingRight; i++) {
+        for (int i = step(position, 1, count); i != RecyclerView.NO_POSITION && offsetX < hangingRight
+                && getChildCount() < count; i = step(i, 1, count)) {
             View v = recycler.getViewForPosition(i);
             addView(v);
-            measureChildWithMargins(v, 0, 0);
-            int width = getDecoratedMeasuredWidth(v);
+            int width = measure(v);
             layoutDecorated(v,  offsetX, 0, offsetX+width, height);
             offsetX += width;
         }
@@ -247,10 +439,30 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         if (getChildCount() == 0) {
             firstPosition = 0;
         } else {
-            firstPosition += first;
+            firstPosition = getPosition(getChildAt(0));
         }
     }
 
+    // Measures child and returns its decorated width. With fixed size, the
+    // width of its view type is returned, a view is measured only if it
+    // requested a layout, it's laid out with its old size otherwise.
+    private int measure(View child) {
+        if (!fixedItemSize) {
+            measureChildWithMargins(child, 0, 0);
+            return getDecoratedMeasuredWidth(child);
+        }
+        final int type = getItemViewType(child);
+        int width = itemWidths.get(type, -1);
+        if (width < 0 || child.isLayoutRequested()) {
+            measureChildWithMargins(child, 0, 0);
+            if (width < 0) {
+                width = getDecoratedMeasuredWidth(child);
+                itemWidths.put(type, width);
+            }
+        }
+        return width;
+    }
+
     // If a view is in parent bounding box.
     private boolean inParentBound(View v, int width, int height) {
         return getDecoratedRight(v) >= 0 &&
@@ -265,10 +477,18 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         if (getChildCount() == 0) {
             return -1;
         }
+        if (circular) {
+            return distance(getCenterPosition(), position) < 0 ? -1 : 1;
+        }
         final int firstChildPos = firstPosition;
         return position < firstChildPos ? -1 : 1;
     }
 
+    // Returns the adapter position of the child in center.
+    private int getCenterPosition() {
+        return getPosition(getChildAt(getChildCount() / 2));
+    }
+
     @Override
     public PointF computeScrollVectorForPosition(int targetPosition) {
         final int direction = calculateScrollDirectionForPosition(targetPosition);
@@ -293,6 +513,17 @@ public class CLLayoutManager extends RecyclerView.LayoutManager implements Recyc
         if (position >= getItemCount() || position < 0) {
             return;
         }
+        // Far away, jump next to the target, then scroll the last items. The
+        // smooth scroller seeks the target after the jump is laid out.
+        if (getChildCount() > 0) {
+            final int d = distance(getCenterPosition(), position);
+            final int count = getItemCount();
+            if (d > SMOOTH_SCROLL_MAX_ITEMS) {
+                scrollToPosition(step(position, -SMOOTH_SCROLL_MAX_ITEMS, count));
+            } else if (d < -SMOOTH_SCROLL_MAX_ITEMS) {
+                scrollToPosition(step(position, SMOOTH_SCROLL_MAX_ITEMS, count));
+            }
+        }
         final Context context = recyclerView.getContext();
         LinearSmoothScroller scroller = new SmoothScroller(context);
         scroller.setTargetPosition(position);
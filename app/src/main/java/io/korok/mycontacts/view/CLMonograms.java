@@ -0,0 +1,152 @@
+package io.korok.mycontacts.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.LruCache;
+
+/**
+ * CLMonograms draws the initials of a name on a colour, it's the placeholder
+ * of an avatar which is missing or loading. The colour is picked by the name,
+ * so it's stable, and monograms of the same initials and colour share a
+ * bitmap, which are kept in a small LRU cache.
+ *
+ * Bitmaps are square, clip them to the shape of the avatar. Don't recycle
+ * them, they're shared.
+ *
+ * It's not thread-safe, use it on the main thread.
+ */
+public class CLMonograms {
+    private static final int[] COLORS = {
+            0xff5c6bc0, 0xff26a69a, 0xffef5350, 0xffab47bc,
+            0xff42a5f5, 0xff66bb6a, 0xffffa726, 0xff8d6e63,
+    };
+
+    private final int size;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final LruCache<String, Bitmap> cache;
+    private final StringBuilder key = new StringBuilder(4);
+
+    /**
+     * @param size the size of monograms in pixels
+     * @param maxSize max number of cached monograms
+     */
+    public CLMonograms(int size, int maxSize) {
+        this.size = size;
+        this.cache = new LruCache<>(maxSize);
+        paint.setColor(Color.WHITE);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(size * 0.4f);
+        paint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
+    }
+
+    /**
+     * Returns the monogram of a name, it's drawn if it's not cached.
+     */
+    public Bitmap get(String firstName, String lastName) {
+        return get(initial(firstName), initial(lastName), hash(firstName, lastName));
+    }
+
+    /**
+     * Returns the monogram of initials, e.g. of the name columns of a
+     * ContactTable, so a bind doesn't build the name.
+     * @param first the first initial, a code point, or -1 if there's none
+     * @param last the last initial, or -1
+     * @param hash the hash of the name, see {@link #hash(int, int)}
+     */
+    public Bitmap get(int first, int last, int hash) {
+        key.setLength(0);
+        if (first >= 0) {
+            key.appendCodePoint(Character.toUpperCase(first));
+        }
+        if (last >= 0) {
+            key.appendCodePoint(Character.toUpperCase(last));
+        }
+        if (key.length() == 0) {
+            key.append('?');
+        }
+        final int color = COLORS[(hash & 0x7fffffff) % COLORS.length];
+        key.append('#').append(Integer.toHexString(color));
+        final String k = key.toString();
+        Bitmap bitmap = cache.get(k);
+        if (bitmap == null) {
+            bitmap = draw(k.substring(0, k.indexOf('#')), color);
+            cache.put(k, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap draw(String initials, int color) {
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.RGB_565);
+        final Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(color);
+        final Paint.FontMetrics fm = paint.getFontMetrics();
+        canvas.drawText(initials, size / 2f, (size - fm.ascent - fm.descent) / 2f, paint);
+        return bitmap;
+    }
+
+    /**
+     * Drops the cached monograms.
+     */
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * Drops the least recently used monograms, until maxSize are cached.
+     */
+    public void trimToSize(int maxSize) {
+        cache.trimToSize(maxSize);
+    }
+
+    /**
+     * Returns the number of cached monograms.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public int maxSize() {
+        return cache.maxSize();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    private static int hash(String firstName, String lastName) {
+        return hash(firstName == null ? 0 : firstName.hashCode(), lastName == null ? 0 : lastName.hashCode());
+    }
+
+    /**
+     * Returns the hash of a name which picks its colour.
+     * @param firstName String.hashCode() of the first name, 0 if there's none
+     * @param lastName String.hashCode() of the last name
+     */
+    public static int hash(int firstName, int lastName) {
+        return 31 * firstName + lastName;
+    }
+
+    /**
+     * Returns the first code point of name which isn't a whitespace, or -1.
+     */
+    public static int initial(String name) {
+        if (name == null) {
+            return -1;
+        }
+        for (int i = 0; i < name.length(); ) {
+            final int cp = name.codePointAt(i);
+            if (!Character.isWhitespace(cp)) {
+                return cp;
+            }
+            i += Character.charCount(cp);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,251 @@
+package io.korok.mycontacts.view;
+
+import android.content.Context;
+import android.graphics.PointF;
+import android.support.v7.widget.LinearSmoothScroller;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * CLPagerLayoutManager is a vertical LayoutManager whose items are pages of
+ * its height, use it with PagerSnapHelper.
+ *
+ * Besides the visible pages, it keeps the pages around them laid out (see
+ * {@link #setOffscreenPageLimit(int)}), so a swipe doesn't create and bind the
+ * next page in its first frame. The page beyond them is prefetched in idle
+ * frame time.
+ *
+ * The page which it settles on is reported to {@link OnPageSettledListener},
+ * e.g. to align the lists which are synced with it.
+ */
+public class CLPagerLayoutManager extends RecyclerView.LayoutManager implements RecyclerView.SmoothScroller.ScrollVectorProvider {
+
+    /**
+     * Listens to the page which the list settles on.
+     */
+    public interface OnPageSettledListener {
+        void onPageSettled(int position);
+    }
+
+    private final Context context;
+
+    /**
+     * number of pages laid out before and after the visible ones.
+     */
+    private int offscreenPageLimit = 1;
+
+    /**
+     * scrolled pixels from the top of the first page.
+     */
+    private int offset;
+
+    /**
+     * the page height of the last layout, the offset is scaled if it changes.
+     */
+    private int lastPageHeight;
+
+    /**
+     * position to show in the next layout, see scrollToPosition().
+     */
+    private int pendingPosition = RecyclerView.NO_POSITION;
+
+    private int settledPosition = RecyclerView.NO_POSITION;
+    private OnPageSettledListener listener;
+
+    public CLPagerLayoutManager(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Sets the number of pages to keep laid out before and after the visible
+     * ones, 1 by default.
+     */
+    public void setOffscreenPageLimit(int limit) {
+        if (limit != offscreenPageLimit) {
+            offscreenPageLimit = Math.max(0, limit);
+            requestLayout();
+        }
+    }
+
+    public int getOffscreenPageLimit() {
+        return offscreenPageLimit;
+    }
+
+    public void setOnPageSettledListener(OnPageSettledListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the page which is mostly visible.
+     */
+    public int getCurrentPosition() {
+        final int height = getPageHeight();
+        return height > 0 ? (offset + height / 2) / height : 0;
+    }
+
+    private int getPageHeight() {
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return true;
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int count = state.getItemCount();
+        final int height = getPageHeight();
+        if (count == 0 || height <= 0) {
+            removeAndRecycleAllViews(recycler);
+            return;
+        }
+        if (pendingPosition != RecyclerView.NO_POSITION) {
+            offset = Math.min(pendingPosition, count - 1) * height;
+            pendingPosition = RecyclerView.NO_POSITION;
+        } else if (lastPageHeight > 0 && lastPageHeight != height) {
+            offset = (int) ((long) offset * height / lastPageHeight);
+        }
+        lastPageHeight = height;
+        offset = Math.max(0, Math.min(offset, (count - 1) * height));
+
+        detachAndScrapAttachedViews(recycler);
+        fill(recycler, count);
+    }
+
+    // Lays out the visible pages and the offscreen ones, recycles the others.
+    // Pages which are laid out already stay where they are.
+    private void fill(RecyclerView.Recycler recycler, int count) {
+        final int height = getPageHeight();
+        final int current = offset / height;
+        final int first = Math.max(0, current - offscreenPageLimit);
+        final int last = Math.min(count - 1, current + (offset % height == 0 ? 0 : 1) + offscreenPageLimit);
+
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            final View child = getChildAt(i);
+            final int p = getPosition(child);
+            if (p < first || p > last) {
+                removeAndRecycleView(child, recycler);
+            }
+        }
+
+        // children are ordered by position, a missing page goes before the
+        // ones after it.
+        int index = 0;
+        for (int p = first; p <= last; p++) {
+            if (index < getChildCount() && getPosition(getChildAt(index)) == p) {
+                index++;
+                continue;
+            }
+            final View v = recycler.getViewForPosition(p);
+            addView(v, index++);
+            measureChildWithMargins(v, 0, 0);
+            final int top = getPaddingTop() + p * height - offset;
+            layoutDecoratedWithMargins(v, getPaddingLeft(), top, getWidth() - getPaddingRight(), top + height);
+        }
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int height = getPageHeight();
+        final int count = getItemCount();
+        if (getChildCount() == 0 || height <= 0) {
+            return 0;
+        }
+        final int target = Math.max(0, Math.min(offset + dy, (count - 1) * height));
+        final int consumed = target - offset;
+        offset = target;
+        offsetChildrenVertical(-consumed);
+        fill(recycler, count);
+        return consumed;
+    }
+
+    /**
+     * Prefetches the page after the offscreen ones in the scroll direction.
+     */
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry registry) {
+        final int height = getPageHeight();
+        if (getChildCount() == 0 || dy == 0 || height <= 0) {
+            return;
+        }
+        final View edge = getChildAt(dy > 0 ? getChildCount() - 1 : 0);
+        final int p = getPosition(edge) + (dy > 0 ? 1 : -1);
+        if (p >= 0 && p < state.getItemCount()) {
+            final int distance = dy > 0 ? getDecoratedBottom(edge) - getHeight() : -getDecoratedTop(edge);
+            registry.addPosition(p, Math.max(0, distance));
+        }
+    }
+
+    @Override
+    public void onScrollStateChanged(int state) {
+        final int height = getPageHeight();
+        if (state != RecyclerView.SCROLL_STATE_IDLE || height <= 0 || offset % height != 0) {
+            return;
+        }
+        final int position = offset / height;
+        if (position != settledPosition && position < getItemCount()) {
+            settledPosition = position;
+            if (listener != null) {
+                listener.onPageSettled(position);
+            }
+        }
+    }
+
+    /**
+     * Shows the page at position, without animation.
+     */
+    @Override
+    public void scrollToPosition(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return;
+        }
+        pendingPosition = position;
+        settledPosition = position;
+        requestLayout();
+    }
+
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return;
+        }
+        LinearSmoothScroller scroller = new LinearSmoothScroller(context);
+        scroller.setTargetPosition(position);
+        startSmoothScroll(scroller);
+    }
+
+    @Override
+    public PointF computeScrollVectorForPosition(int targetPosition) {
+        if (getChildCount() == 0) {
+            return null;
+        }
+        final int height = getPageHeight();
+        final int target = targetPosition * Math.max(1, height);
+        return new PointF(0, target < offset ? -1 : 1);
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return offset;
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return getPageHeight();
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        return state.getItemCount() * getPageHeight();
+    }
+}
@@ -0,0 +1,103 @@
+package io.korok.mycontacts.view;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * CLPreloader warms the resources (e.g. image decodes) of the items after the
+ * prefetch window of a RecyclerView, in the scroll direction. Items are
+ * preloaded one per idle message queue, so it never takes a frame.
+ *
+ * It's a scroll listener, add it to the RecyclerView.
+ */
+public abstract class CLPreloader extends RecyclerView.OnScrollListener implements MessageQueue.IdleHandler {
+    private final int skip;
+    private final int distance;
+
+    /**
+     * the preloaded positions, low .. high, high < low if there's none.
+     */
+    private int low;
+    private int high = -1;
+
+    /**
+     * the position to preload next, to end (inclusive) by direction.
+     */
+    private int next;
+    private int end;
+    private int direction;
+    private boolean scheduled;
+
+    /**
+     * @param skip number of items after the visible ones which are left to
+     *             the prefetch of the LayoutManager
+     * @param distance number of items to preload after them
+     */
+    public CLPreloader(int skip, int distance) {
+        this.skip = skip;
+        this.distance = distance;
+    }
+
+    /**
+     * Preloads the item at position, it's called on the main thread.
+     */
+    protected abstract void preload(int position);
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        final RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+        final int delta = dx != 0 ? dx : dy;
+        if (lm == null || lm.getChildCount() == 0 || delta == 0) {
+            return;
+        }
+        final int count = lm.getItemCount();
+        direction = delta > 0 ? 1 : -1;
+        if (direction > 0) {
+            final int last = lm.getPosition(lm.getChildAt(lm.getChildCount() - 1));
+            final int from = last + 1 + skip;
+            end = Math.min(count - 1, from + distance - 1);
+            if (from >= low && from <= high + 1) {
+                next = high + 1;
+            } else {
+                next = from;
+                low = from;
+                high = from - 1;
+            }
+        } else {
+            final int first = lm.getPosition(lm.getChildAt(0));
+            final int from = first - 1 - skip;
+            end = Math.max(0, from - distance + 1);
+            if (from <= high && from >= low - 1) {
+                next = low - 1;
+            } else {
+                next = from;
+                high = from;
+                low = from + 1;
+            }
+        }
+        if (!scheduled && remaining()) {
+            scheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (remaining()) {
+            preload(next);
+            if (direction > 0) {
+                high = next;
+            } else {
+                low = next;
+            }
+            next += direction;
+        }
+        scheduled = remaining();
+        return scheduled;
+    }
+
+    private boolean remaining() {
+        return direction > 0 ? next <= end : next >= end && next >= 0;
+    }
+}
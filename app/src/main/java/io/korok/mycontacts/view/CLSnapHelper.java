@@ -0,0 +1,134 @@
+package io.korok.mycontacts.view;
+
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SnapHelper;
+import android.view.View;
+
+/**
+ * CLSnapHelper snaps the center item of a {@link CLLayoutManager}.
+ *
+ * The center child is computed from the item width, not by scanning children.
+ * A fling targets the position where its projected distance ends. When the
+ * list settles on a new center item, {@link OnSnapListener} is called once.
+ */
+public class CLSnapHelper extends SnapHelper {
+
+    /**
+     * Listens to the position which the list settles on.
+     */
+    public interface OnSnapListener {
+        void onSnapped(int position);
+    }
+
+    private OnSnapListener listener;
+    private int snappedPosition = RecyclerView.NO_POSITION;
+
+    public void setOnSnapListener(OnSnapListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the position which the list settled on last time.
+     */
+    public int getSnappedPosition() {
+        return snappedPosition;
+    }
+
+    @Override
+    public void attachToRecyclerView(RecyclerView recyclerView) throws IllegalStateException {
+        super.attachToRecyclerView(recyclerView);
+        if (recyclerView != null) {
+            recyclerView.addOnScrollListener(settleListener);
+        }
+    }
+
+    @Override
+    public int[] calculateDistanceToFinalSnap(RecyclerView.LayoutManager lm, View targetView) {
+        return new int[]{distanceToCenter(lm, targetView), 0};
+    }
+
+    /**
+     * Returns the pixels to scroll to center view.
+     */
+    public int distanceToCenter(RecyclerView.LayoutManager lm, View view) {
+        final int center = (lm.getDecoratedLeft(view) + lm.getDecoratedRight(view)) / 2;
+        return center - lm.getWidth() / 2;
+    }
+
+    @Override
+    public View findSnapView(RecyclerView.LayoutManager lm) {
+        final int count = lm.getChildCount();
+        if (count == 0) {
+            return null;
+        }
+        final int mid = lm.getWidth() / 2;
+        final int width = itemWidth(lm);
+        if (width > 0) {
+            // children are laid out from the first one, width apart.
+            final int i = (mid - lm.getDecoratedLeft(lm.getChildAt(0))) / width;
+            return lm.getChildAt(Math.max(0, Math.min(count - 1, i)));
+        }
+        View closest = null;
+        int distance = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            final View child = lm.getChildAt(i);
+            final int d = Math.abs(distanceToCenter(lm, child));
+            if (d < distance) {
+                distance = d;
+                closest = child;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public int findTargetSnapPosition(RecyclerView.LayoutManager lm, int velocityX, int velocityY) {
+        final View center = findSnapView(lm);
+        if (center == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        int width = itemWidth(lm);
+        if (width <= 0) {
+            width = lm.getDecoratedRight(center) - lm.getDecoratedLeft(center);
+        }
+        if (width <= 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        // where the fling ends, relative to the center item.
+        final int[] distance = calculateScrollDistance(velocityX, velocityY);
+        final int dx = distance[0] + distanceToCenter(lm, center);
+        final int target = lm.getPosition(center) + Math.round(dx / (float) width);
+        final int count = lm.getItemCount();
+        if (lm instanceof CLLayoutManager && ((CLLayoutManager) lm).isCircular() && count > 0) {
+            return ((target % count) + count) % count;
+        }
+        return Math.max(0, Math.min(count - 1, target));
+    }
+
+    private static int itemWidth(RecyclerView.LayoutManager lm) {
+        return lm instanceof CLLayoutManager ? ((CLLayoutManager) lm).getFixedItemWidth() : -1;
+    }
+
+    // Calls the listener when the scroll stops with an item in center, the
+    // snap scroll after a drag stops again, only that one is reported.
+    private final RecyclerView.OnScrollListener settleListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+                return;
+            }
+            final RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+            final View center = lm == null ? null : findSnapView(lm);
+            if (center == null || Math.abs(distanceToCenter(lm, center)) > 1) {
+                return;
+            }
+            final int position = lm.getPosition(center);
+            if (position != snappedPosition) {
+                snappedPosition = position;
+                if (listener != null) {
+                    listener.onSnapped(position);
+                }
+            }
+        }
+    };
+}
@@ -1,43 +1,48 @@
 package io.korok.mycontacts.view;
 
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * Synchronize two RecyclerView, it supposes that the first scroll horizontally,
- * the second one scroll vertically.
+ * Synchronize RecyclerViews which show the same items, e.g. the avatar
+ * carousel and the detail list. Each list has its own orientation and
+ * alignment, items of a list have the same size, which is read from its
+ * children.
+ *
+ * The list which is touched last owns the scroll. Scrolls are coalesced by
+ * frame: when the owner scrolls, the mediator is marked dirty, once per vsync
+ * its position (adapter position plus the fraction of the item it scrolled) is
+ * read from its children, and the other lists are moved there with one direct
+ * scroll each. Nothing is accumulated, so it never drifts.
  */
-public class CLSyncMediator {
-    /**
-     * RecyclerView that scrolls horizontally.
-     */
-    private RecyclerView hRecyclerView;
+public class CLSyncMediator implements Choreographer.FrameCallback {
+    private final List<Member> members = new ArrayList<>();
 
     /**
-     * RecyclerView that scroll vertically.
+     * the list which was touched last, only its scrolls are synced.
      */
-    private RecyclerView vRecyclerView;
+    private RecyclerView owner;
 
-    /**
-     * EventSource is used to distinguish which RecyclerView was scrolling.
-     */
-    private EventSource source;
-
-    private ScrollWatcher hScrollWatcher;
-    private ScrollWatcher vScrollWatcher;
+    private boolean dirty;
+    private boolean scheduled;
+    private boolean synced;
 
+    public CLSyncMediator() {
+    }
 
     /**
-     * @param h horizontal RecyclerView
-     * @param v vertical RecyclerView
+     * @param h horizontal RecyclerView, its item is centered
+     * @param v vertical RecyclerView, its item is aligned to the top
      */
     public CLSyncMediator(RecyclerView h, RecyclerView v) {
-        this.hRecyclerView = h;
-        this.vRecyclerView = v;
-        hScrollWatcher = new ScrollWatcher(h);
-        vScrollWatcher = new ScrollWatcher(v);
-        source = new EventSource(h, v);
+        add(h, RecyclerView.HORIZONTAL, true);
+        add(v, RecyclerView.VERTICAL, false);
     }
 
     /**
@@ -51,164 +56,222 @@ public class CLSyncMediator {
         new CLSyncMediator(h, v).sync();
     }
 
+    /**
+     * Adds a list, it's synced after sync().
+     * @param recyclerView the list
+     * @param orientation RecyclerView.HORIZONTAL or RecyclerView.VERTICAL
+     * @param centered if the current item is in the center of the list, like
+     *                 CLLayoutManager, otherwise it's at the start
+     */
+    public CLSyncMediator add(RecyclerView recyclerView, int orientation, boolean centered) {
+        final Member member = new Member(recyclerView, orientation == RecyclerView.HORIZONTAL, centered);
+        members.add(member);
+        if (synced) {
+            member.listen(this);
+        }
+        return this;
+    }
+
     public void sync() {
-        hRecyclerView.addOnScrollListener(hListener);
-        vRecyclerView.addOnScrollListener(vListener);
+        if (synced) {
+            return;
+        }
+        synced = true;
+        for (Member m : members) {
+            m.listen(this);
+        }
     }
 
     public void unsync() {
-        hRecyclerView.removeOnScrollListener(hListener);
-        vRecyclerView.removeOnScrollListener(vListener);
+        if (!synced) {
+            return;
+        }
+        synced = false;
+        for (Member m : members) {
+            m.recyclerView.removeOnScrollListener(scrollListener);
+            m.recyclerView.removeOnItemTouchListener(touchListener);
+        }
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            scheduled = false;
+        }
+        dirty = false;
     }
 
-    // onHorizontalScroll computes the position that hRecyclerView scrolls, it's a
-    // normalized value, which can used to compute the scroll distance by multiply
-    // a unit(width or height). By multiplying height of vRecyclerView, we get the
-    // scroll distance of vRecyclerView.
-    private void onHorizontalScroll(RecyclerView recyclerView) {
-        if (hRecyclerView.getChildCount() == 0 || vRecyclerView.getChildCount() == 0) {
-            return;
+    /**
+     * Jumps all RecyclerViews to position without animation, e.g. to show a
+     * search result.
+     * @param position adapter position
+     */
+    public void scrollToPosition(int position) {
+        dirty = false;
+        for (Member m : members) {
+            m.recyclerView.stopScroll();
+            m.jump(position);
         }
-        // h
-        final int offsetX = hScrollWatcher.getOffsetX();
-        final int width = recyclerView.getChildAt(0).getWidth();
-        final float position = offsetX/(float)width;
-
-        // v
-        View v = vRecyclerView.getChildAt(0);
-        int offsetY = vScrollWatcher.getOffsetY();
-        int height = v.getHeight();
-        int delta = (int)(position * height) - offsetY;
-        vRecyclerView.smoothScrollBy(0, delta);
     }
 
-    private void onVerticalScroll(RecyclerView recyclerView) {
-        if (hRecyclerView.getChildCount() == 0 || vRecyclerView.getChildCount() == 0) {
+    /**
+     * Aligns the other RecyclerViews to position, when the owner settled on
+     * it, e.g. from {@link CLSnapHelper.OnSnapListener}. A sync in the last
+     * frame may leave them a pixel off.
+     * @param position adapter position
+     */
+    public void settle(int position) {
+        final Member from = find(owner);
+        if (from == null || !from.isReady()) {
             return;
         }
-        // v
-        final int offsetY = vScrollWatcher.getOffsetY();
-        final int height = recyclerView.getChildAt(0).getHeight();
-        final float position = offsetY/(float)height;
-
-        // h
-        View v = hRecyclerView.getChildAt(0);
-        int width = v.getWidth();
-        int offsetX = hScrollWatcher.getOffsetX();
-        int delta = (int)(position * width) - offsetX;
-        hRecyclerView.smoothScrollBy(delta, 0);
+        final int count = from.getItemCount();
+        for (Member m : members) {
+            if (m == from || !m.isReady() || m.getItemCount() != count) {
+                continue;
+            }
+            if (Math.abs(m.getPosition() - position) * m.getItemSize() >= 1) {
+                m.recyclerView.stopScroll();
+                m.jump(position);
+            }
+        }
     }
 
-    // horizontal scroll
-    private RecyclerView.OnScrollListener hListener = new RecyclerView.OnScrollListener() {
+    private Member find(RecyclerView recyclerView) {
+        for (Member m : members) {
+            if (m.recyclerView == recyclerView) {
+                return m;
+            }
+        }
+        return null;
+    }
 
-        @Override
-        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-            //vRecyclerView.removeOnScrollListener(vListener);
-            if (source.From(hRecyclerView)) {
-                onHorizontalScroll(recyclerView);
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        final Member from = find(owner);
+        if (from == null || !from.isReady()) {
+            return;
+        }
+        // lists are skipped while their adapters are notified separately,
+        // positions don't match then.
+        final int count = from.getItemCount();
+        final float position = from.getPosition();
+        for (Member m : members) {
+            if (m != from && m.isReady() && m.getItemCount() == count) {
+                m.moveTo(position);
             }
         }
-    };
+    }
 
-    // vertical scroll
-    private RecyclerView.OnScrollListener vListener = new RecyclerView.OnScrollListener() {
+    // Marks the owner scrolled, the others follow in the next frame.
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
         @Override
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-            //hRecyclerView.removeOnScrollListener(hListener);
-            if (source.From(vRecyclerView)) {
-                onVerticalScroll(recyclerView);
+            if (recyclerView != owner) {
+                return;
+            }
+            dirty = true;
+            if (!scheduled) {
+                scheduled = true;
+                Choreographer.getInstance().postFrameCallback(CLSyncMediator.this);
             }
         }
     };
 
+    // The touched list owns the scroll.
+    private final RecyclerView.OnItemTouchListener touchListener = new RecyclerView.OnItemTouchListener() {
+        @Override
+        public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+            owner = rv;
+            return false;
+        }
 
-    /**
-     * A helper class to distinguish which class emits the scroll action.
-     */
-    static class EventSource {
-        private RecyclerView rv1;
-        private RecyclerView rv2;
-        private boolean fromRv1;
-        private boolean fromRv2;
-
-        public EventSource(RecyclerView rv1, RecyclerView rv2) {
-            this.rv1 = rv1;
-            this.rv2 = rv2;
-
-            rv1.addOnItemTouchListener(new RecyclerView.OnItemTouchListener() {
-                @Override
-                public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
-                    fromRv1 = true;
-                    fromRv2 = false;
-                    return false;
-                }
-
-                @Override
-                public void onTouchEvent(RecyclerView rv, MotionEvent e) {
-
-                }
-
-                @Override
-                public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        @Override
+        public void onTouchEvent(RecyclerView rv, MotionEvent e) {
 
-                }
-            });
-            rv2.addOnItemTouchListener(new RecyclerView.OnItemTouchListener() {
-                @Override
-                public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
-                    fromRv2 = true;
-                    fromRv1 = false;
-                    return false;
-                }
+        }
 
-                @Override
-                public void onTouchEvent(RecyclerView rv, MotionEvent e) {
+        @Override
+        public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
 
-                }
+        }
+    };
 
-                @Override
-                public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    /**
+     * A synced list, it maps its scroll to positions by its item size.
+     */
+    static class Member {
+        final RecyclerView recyclerView;
+        final boolean horizontal;
+        final boolean centered;
+
+        Member(RecyclerView recyclerView, boolean horizontal, boolean centered) {
+            this.recyclerView = recyclerView;
+            this.horizontal = horizontal;
+            this.centered = centered;
+        }
 
-                }
-            });
+        void listen(CLSyncMediator mediator) {
+            recyclerView.addOnScrollListener(mediator.scrollListener);
+            recyclerView.addOnItemTouchListener(mediator.touchListener);
         }
 
-        public boolean From(RecyclerView rv) {
-            if (rv == rv1 && fromRv1) {
-                return true;
-            }
-            if (rv == rv2 && fromRv2) {
-                return true;
-            }
-            return false;
+        boolean isReady() {
+            return recyclerView.getChildCount() > 0 && recyclerView.getAdapter() != null;
         }
-    }
 
-    /**
-     * RecyclerView does not implement View.getScrollX() and View.getScrollY() method.
-     * ScrollWatcher watches the scroll action and remember the scroll distance.
-     */
-    static class ScrollWatcher extends RecyclerView.OnScrollListener {
-        private int offsetX;
-        private int offsetY;
+        int getItemCount() {
+            return recyclerView.getAdapter().getItemCount();
+        }
 
-        public ScrollWatcher(RecyclerView recyclerView) {
-            recyclerView.addOnScrollListener(this);
+        int getItemSize() {
+            final RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+            final View first = lm.getChildAt(0);
+            return horizontal
+                    ? lm.getDecoratedRight(first) - lm.getDecoratedLeft(first)
+                    : lm.getDecoratedBottom(first) - lm.getDecoratedTop(first);
         }
 
-        @Override
-        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-            offsetX += dx;
-            offsetY += dy;
+        // Returns the position as a float: the adapter position of the item,
+        // plus the fraction of the item scrolled past.
+        float getPosition() {
+            final RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+            final View first = lm.getChildAt(0);
+            final int size = Math.max(1, getItemSize());
+            final int start = horizontal ? lm.getDecoratedLeft(first) : lm.getDecoratedTop(first);
+            if (!centered) {
+                return lm.getPosition(first) - start / (float) size;
+            }
+            final int mid = (horizontal ? lm.getWidth() : lm.getHeight()) / 2;
+            final float position = lm.getPosition(first) + (mid - start - size / 2) / (float) size;
+            // a circular list wraps after the last item.
+            final int count = getItemCount();
+            return position >= count ? position - count : position;
         }
 
-        public int getOffsetX() {
-            return offsetX;
+        // Scrolls to position with one scrollBy(), or a jump if the position
+        // is further than the laid out items.
+        void moveTo(float position) {
+            final float current = getPosition();
+            if (Math.abs(position - current) > recyclerView.getLayoutManager().getChildCount() + 1) {
+                jump(Math.round(position));
+                return;
+            }
+            final int delta = Math.round((position - current) * getItemSize());
+            if (delta != 0) {
+                recyclerView.scrollBy(horizontal ? delta : 0, horizontal ? 0 : delta);
+            }
         }
 
-        public int getOffsetY() {
-            return offsetY;
+        void jump(int position) {
+            final RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+            if (!centered && lm instanceof LinearLayoutManager) {
+                ((LinearLayoutManager) lm).scrollToPositionWithOffset(position, 0);
+            } else {
+                recyclerView.scrollToPosition(position);
+            }
         }
     }
 }
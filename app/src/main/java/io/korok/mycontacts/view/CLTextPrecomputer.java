@@ -0,0 +1,167 @@
+package io.korok.mycontacts.view;
+
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.TextPaint;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * CLTextPrecomputer builds text layouts (measurement and line breaks) in the
+ * background, so a {@link CLTextView} is bound without measuring its text.
+ * Layouts are kept in a small LRU cache, keyed by id (e.g. of the contact) and
+ * the style: text size, typeface and width.
+ *
+ * It's not thread-safe, use it on the main thread.
+ */
+public class CLTextPrecomputer {
+    private final Executor executor;
+    private final int maxSize;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<Key, Layout> cache;
+    private final Set<Key> pending = new HashSet<>();
+
+    private int hits;
+    private int misses;
+
+    /**
+     * @param executor where layouts are built
+     * @param maxSize max number of cached layouts
+     */
+    public CLTextPrecomputer(Executor executor, final int maxSize) {
+        this.executor = executor;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<Key, Layout>(maxSize + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the layout of id in the style of paint and width, or null if
+     * it's not built yet.
+     */
+    public Layout get(long id, TextPaint paint, int width) {
+        final Layout layout = width > 0 ? cache.get(new Key(id, paint, width)) : null;
+        if (layout == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return layout;
+    }
+
+    /**
+     * Builds the layout of text in the background, if it's not cached or
+     * being built.
+     * @param id the id of text, e.g. of the contact
+     * @param paint the paint of the view, it's copied
+     * @param width the width of the text, it's skipped if it's unknown (0)
+     */
+    public void precompute(long id, final CharSequence text, TextPaint paint, final int width) {
+        if (width <= 0 || text == null) {
+            return;
+        }
+        final Key key = new Key(id, paint, width);
+        if (cache.containsKey(key) || !pending.add(key)) {
+            return;
+        }
+        final TextPaint copy = new TextPaint(paint);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Layout layout = CLTextView.build(text, copy, width);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pending.remove(key)) {
+                            cache.put(key, layout);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the cached layouts, the ones being built are dropped when done.
+     */
+    public void clear() {
+        cache.clear();
+        pending.clear();
+    }
+
+    /**
+     * Returns the number of cached layouts.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Drops the least recently used layouts, until at most size are cached.
+     */
+    public void trimToSize(int size) {
+        final Iterator<Key> it = cache.keySet().iterator();
+        for (int n = cache.size(); n > Math.max(0, size) && it.hasNext(); n--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public int getHitCount() {
+        return hits;
+    }
+
+    public int getMissCount() {
+        return misses;
+    }
+
+    /**
+     * id and the style which the layout depends on.
+     */
+    static final class Key {
+        final long id;
+        final float textSize;
+        final Typeface typeface;
+        final int width;
+
+        Key(long id, TextPaint paint, int width) {
+            this.id = id;
+            this.textSize = paint.getTextSize();
+            this.typeface = paint.getTypeface();
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return id == k.id && textSize == k.textSize && width == k.width
+                    && (typeface == null ? k.typeface == null : typeface.equals(k.typeface));
+        }
+
+        @Override
+        public int hashCode() {
+            int h = (int) (id ^ (id >>> 32));
+            h = 31 * h + Float.floatToIntBits(textSize);
+            h = 31 * h + width;
+            return 31 * h + (typeface == null ? 0 : typeface.hashCode());
+        }
+    }
+}
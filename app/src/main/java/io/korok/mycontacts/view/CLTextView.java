@@ -0,0 +1,140 @@
+package io.korok.mycontacts.view;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.widget.TextView;
+
+/**
+ * CLTextView draws a multi-line text from a {@link Layout}, which may be
+ * precomputed in the background with {@link CLTextPrecomputer}. Setting a
+ * precomputed layout of the same height doesn't measure anything, if there's
+ * no layout of its width, it's built when it's measured, like TextView.
+ *
+ * It takes the full width it's given, supports android:textSize and
+ * android:textColor. Accessibility services read the text like a TextView's.
+ */
+public class CLTextView extends View {
+    // sorted by attribute id, obtainStyledAttributes() requires it.
+    private static final int[] ATTRS = {android.R.attr.textSize, android.R.attr.textColor};
+
+    private final TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+    private CharSequence text = "";
+    private Layout layout;
+
+    public CLTextView(Context context) {
+        this(context, null);
+    }
+
+    public CLTextView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        paint.density = getResources().getDisplayMetrics().density;
+        TypedArray a = context.obtainStyledAttributes(attrs, ATTRS);
+        try {
+            paint.setTextSize(a.getDimension(0, TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14,
+                    getResources().getDisplayMetrics())));
+            paint.setColor(a.getColor(1, Color.BLACK));
+        } finally {
+            a.recycle();
+        }
+        if (getImportantForAccessibility() == IMPORTANT_FOR_ACCESSIBILITY_AUTO) {
+            setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_YES);
+        }
+    }
+
+    /**
+     * Returns the paint of the text, don't change it, it's the style of the
+     * layouts.
+     */
+    public TextPaint getPaint() {
+        return paint;
+    }
+
+    /**
+     * Returns the width of the text, or 0 if it hasn't been measured.
+     */
+    public int getTextWidth() {
+        final int width = getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+        return Math.max(0, width);
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * Sets the text.
+     * @param precomputed the layout of text, it's not used if its text or
+     *                    width differs, e.g. the contact changed
+     */
+    public void setText(CharSequence text, Layout precomputed) {
+        this.text = text == null ? "" : text;
+        final Layout old = layout;
+        if (precomputed != null && TextUtils.equals(precomputed.getText(), this.text)
+                && precomputed.getWidth() == getTextWidth()) {
+            layout = precomputed;
+        } else {
+            layout = null;
+        }
+        if (layout == null || old == null || old.getHeight() != layout.getHeight()) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * Builds the layout of text, it's safe on any thread if paint isn't
+     * changed.
+     */
+    @SuppressWarnings("deprecation")
+    public static Layout build(CharSequence text, TextPaint paint, int width) {
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        final int textWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+        if (layout == null || layout.getWidth() != textWidth) {
+            layout = build(text, paint, textWidth);
+        }
+        final int height = layout.getHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setClassName(TextView.class.getName());
+        info.setText(text);
+    }
+
+    @Override
+    public void onPopulateAccessibilityEvent(AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(event);
+        if (text.length() > 0) {
+            event.getText().add(text);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (layout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        layout.draw(canvas);
+        canvas.restore();
+    }
+}
@@ -0,0 +1,143 @@
+package io.korok.mycontacts.view;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v7.app.AppCompatDelegate;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * CLViewPools keeps the RecycledViewPools of the lists in the process, so a
+ * recreated activity reuses the views of the old one. Views of the pools must
+ * be inflated with {@link #getInflater}, whose context doesn't reference an
+ * activity, and the adapters are set with RecyclerView.swapAdapter(), which
+ * doesn't clear the pool.
+ *
+ * At startup, {@link #prefill} creates the view holders in the background, so
+ * the first layout doesn't inflate them. All pools are filled on one thread,
+ * like AsyncLayoutInflater: LayoutInflater caches constructors in a static
+ * map which isn't thread-safe.
+ *
+ * Use it on the main thread.
+ */
+public class CLViewPools {
+    private static final String TAG = "CLViewPools";
+
+    private static final Map<String, RecyclerView.RecycledViewPool> pools = new HashMap<>();
+    private static Context context;
+    private static ExecutorService inflater;
+
+    private CLViewPools() {
+    }
+
+    /**
+     * Returns the context to inflate pooled views, it's the application with
+     * the theme.
+     */
+    public static Context getContext(Context context, int theme) {
+        if (CLViewPools.context == null) {
+            CLViewPools.context = new ContextThemeWrapper(context.getApplicationContext(), theme);
+        }
+        return CLViewPools.context;
+    }
+
+    /**
+     * Returns an inflater of the context of pooled views, see getContext().
+     * Views are created by the AppCompat delegate of the activity first, like
+     * its own inflater, so they're AppCompat widgets with tinting. It
+     * references the delegate, keep it in the activity.
+     */
+    public static LayoutInflater getInflater(Context context, int theme, AppCompatDelegate delegate) {
+        final Context views = getContext(context, theme);
+        final LayoutInflater inflater = LayoutInflater.from(views).cloneInContext(views);
+        inflater.setFactory2(new AppCompatFactory(delegate));
+        return inflater;
+    }
+
+    /**
+     * Returns the pool of name, it's created the first time.
+     */
+    public static RecyclerView.RecycledViewPool get(String name) {
+        RecyclerView.RecycledViewPool pool = pools.get(name);
+        if (pool == null) {
+            pool = new RecyclerView.RecycledViewPool();
+            pools.put(name, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Creates view holders of viewType in the background, until the pool of
+     * recyclerView has count of them. The adapter must inflate with a
+     * LayoutInflater of the calling thread, LayoutInflater isn't thread-safe.
+     */
+    public static void prefill(final RecyclerView recyclerView, final RecyclerView.Adapter<?> adapter,
+                               final int viewType, int count) {
+        final RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        pool.setMaxRecycledViews(viewType, count);
+        final int n = count - pool.getRecycledViewCount(viewType);
+        if (n <= 0) {
+            return;
+        }
+        if (inflater == null) {
+            inflater = Executors.newSingleThreadExecutor();
+        }
+        final Handler handler = new Handler(Looper.getMainLooper());
+        inflater.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long start = SystemClock.uptimeMillis();
+                final List<RecyclerView.ViewHolder> holders = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    // it's the RecyclerView's layout params, views are not added.
+                    holders.add(adapter.createViewHolder(recyclerView, viewType));
+                }
+                final long time = SystemClock.uptimeMillis() - start;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (RecyclerView.ViewHolder holder : holders) {
+                            pool.putRecycledView(holder);
+                        }
+                        Log.i(TAG, "inflated " + n + " views of type " + viewType + " in " + time + " ms");
+                    }
+                });
+            }
+        });
+    }
+
+    // Creates views with the delegate, clones of the inflater may be used in
+    // the background, so views are created one at a time.
+    private static final class AppCompatFactory implements LayoutInflater.Factory2 {
+        private final AppCompatDelegate delegate;
+
+        AppCompatFactory(AppCompatDelegate delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+            synchronized (delegate) {
+                return delegate.createView(parent, name, context, attrs);
+            }
+        }
+
+        @Override
+        public View onCreateView(String name, Context context, AttributeSet attrs) {
+            return onCreateView(null, name, context, attrs);
+        }
+    }
+}
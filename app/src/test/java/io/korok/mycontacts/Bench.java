@@ -0,0 +1,102 @@
+package io.korok.mycontacts;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+
+/**
+ * A tiny harness for JVM benchmarks. Benchmarks are plain JUnit tests which are
+ * skipped unless the `bench` system property is set.
+ */
+public class Bench {
+    /**
+     * keeps the result of a round reachable while measuring.
+     */
+    private static volatile Object sink;
+
+    public interface Task {
+        /**
+         * Runs one round, the returned value is kept alive until the round
+         * finished, so it's counted in the peak heap.
+         */
+        Object run() throws Exception;
+    }
+
+    public static class Result {
+        /**
+         * median time of all rounds, in milliseconds.
+         */
+        public double millis;
+
+        /**
+         * max heap growth during a round, in bytes. It's the sum of the peak
+         * of each heap pool, so it's an upper bound.
+         */
+        public long peakBytes;
+    }
+
+    public static boolean enabled() {
+        return Boolean.getBoolean("bench");
+    }
+
+    public static Result run(int rounds, Task task) throws Exception {
+        // warm up
+        task.run();
+
+        double[] times = new double[rounds];
+        long peak = 0;
+        for (int i = 0; i < rounds; i++) {
+            gc();
+            long base = heapUsed();
+            resetPeaks();
+            long start = System.nanoTime();
+            sink = task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+            peak = Math.max(peak, heapPeak() - base);
+            sink = null;
+        }
+        Arrays.sort(times);
+        Result r = new Result();
+        r.millis = times[rounds / 2];
+        r.peakBytes = peak;
+        return r;
+    }
+
+    public static void report(String name, Result r) {
+        System.out.println(String.format("%-40s %10.2f ms %10.1f MB", name, r.millis, r.peakBytes / 1048576.0));
+    }
+
+    public static void report(String name, String value) {
+        System.out.println(String.format("%-40s %s", name, value));
+    }
+
+    public static void gc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+
+    public static long heapUsed() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long heapPeak() {
+        long sum = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                sum += pool.getPeakUsage().getUsed();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,71 @@
+package io.korok.mycontacts.model;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.korok.mycontacts.Bench;
+import io.korok.mycontacts.repos.ContactFixtures;
+
+/**
+ * Compares the retained heap of List&lt;Contact&gt; and ContactTable.
+ *
+ * Note that JDK 9+ stores Latin-1 strings in a byte[], run with
+ * -XX:-CompactStrings to compare with a UTF-16 runtime.
+ *
+ * Skipped by default, run with: ./gradlew :app:testDebugUnitTest -Dbench=true
+ */
+public class ContactTableBenchmark {
+    private static final int[] SIZES = {10000, 100000, 1000000};
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue(Bench.enabled());
+    }
+
+    @Test
+    public void footprint() {
+        for (int size : SIZES) {
+            long list = retained(list(size));
+            long table = retained(table(size));
+            Bench.report("footprint " + size + " List<Contact>", String.format("%10.1f MB", list / 1048576.0));
+            Bench.report("footprint " + size + " ContactTable", String.format("%10.1f MB", table / 1048576.0));
+        }
+    }
+
+    // Measures the heap retained by the object created in the argument, the
+    // base is measured after the fixtures are warmed up.
+    private static long retained(Object o) {
+        Bench.gc();
+        long used = Bench.heapUsed();
+        o = null;
+        Bench.gc();
+        return used - Bench.heapUsed();
+    }
+
+    private static List<Contact> list(int size) {
+        List<Contact> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Contact c = new Contact();
+            c.firstName = ContactFixtures.firstName(i);
+            c.lastName = ContactFixtures.lastName(i);
+            c.title = ContactFixtures.title(i);
+            c.avatar = ContactFixtures.avatar(i);
+            c.introduction = ContactFixtures.introduction(i);
+            list.add(c);
+        }
+        return list;
+    }
+
+    private static ContactTable table(int size) {
+        ContactTable.Builder builder = new ContactTable.Builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.add(ContactFixtures.firstName(i), ContactFixtures.lastName(i), ContactFixtures.title(i),
+                    ContactFixtures.avatar(i), ContactFixtures.introduction(i));
+        }
+        return builder.build();
+    }
+}
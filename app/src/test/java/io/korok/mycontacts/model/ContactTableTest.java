@@ -0,0 +1,121 @@
+package io.korok.mycontacts.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ContactTableTest {
+
+    @Test
+    public void storesRows() {
+        ContactTable.Builder builder = new ContactTable.Builder(1);
+        for (int i = 0; i < 100; i++) {
+            builder.add("first" + i, "last" + i, i % 2 == 0 ? "Writer" : null, "a" + i + ".png", "intro " + i);
+        }
+        ContactTable table = builder.build();
+        assertEquals(100, table.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("first" + i, table.getString(i, ContactTable.FIRST_NAME));
+            char[] buffer = new char[table.length(i, ContactTable.LAST_NAME)];
+            int n = table.getChars(i, ContactTable.LAST_NAME, buffer);
+            assertEquals("last" + i, new String(buffer, 0, n));
+            assertEquals(i % 2 == 0 ? "Writer" : "", table.get(i).title);
+            assertEquals("a" + i + ".png", table.get(i).avatar);
+            assertEquals("intro " + i, table.get(i).introduction);
+        }
+    }
+
+    @Test
+    public void dictionaryEncodesTitleAndAvatar() {
+        Dictionary titles = new Dictionary();
+        final int[] mapped = new int[1];
+        Dictionary avatars = new Dictionary(new Dictionary.Mapper() {
+            @Override
+            public String map(String value) {
+                mapped[0]++;
+                return value.replace(".png", "@2x.png");
+            }
+        });
+        ContactTable.Builder builder = new ContactTable.Builder(4, titles, avatars);
+        for (int i = 0; i < 90; i++) {
+            builder.add("f", "l", i % 3 == 0 ? "Writer" : "Designer", "a" + (i % 5) + ".png", "");
+        }
+        ContactTable first = builder.build();
+        ContactTable second = new ContactTable.Builder(4, titles, avatars)
+                .add("f", "l", "Designer", "a1.png", "").build();
+
+        assertEquals(2, first.dictionarySize(ContactTable.TITLE));
+        assertEquals(5, first.dictionarySize(ContactTable.AVATAR));
+        assertEquals(5, mapped[0]);
+        assertEquals("a2@2x.png", first.getString(7, ContactTable.AVATAR));
+        assertSame(first.getString(1, ContactTable.TITLE), first.getString(2, ContactTable.TITLE));
+        // codes are shared by tables which share the dictionary.
+        assertEquals(first.code(1, ContactTable.TITLE), second.code(0, ContactTable.TITLE));
+        assertNotEquals(first.code(0, ContactTable.TITLE), first.code(1, ContactTable.TITLE));
+        assertEquals("a1@2x.png", second.get(0).avatar);
+    }
+
+    @Test
+    public void tablesShareGrowingDictionary() {
+        Dictionary avatars = new Dictionary();
+        ContactTable.Builder builder = new ContactTable.Builder(4, new Dictionary(), avatars);
+        builder.add("f", "l", "", "a0.png", "");
+        ContactTable first = builder.build();
+        // e.g. later batches of a load, every avatar is distinct.
+        builder = new ContactTable.Builder(4, new Dictionary(), avatars);
+        for (int i = 1; i < 100; i++) {
+            builder.add("f", "l", "", "a" + i + ".png", "");
+        }
+        ContactTable second = builder.build();
+
+        assertEquals(1, first.dictionarySize(ContactTable.AVATAR));
+        assertEquals(100, second.dictionarySize(ContactTable.AVATAR));
+        assertEquals("a0.png", first.getString(0, ContactTable.AVATAR));
+        assertEquals("a99.png", second.getString(98, ContactTable.AVATAR));
+    }
+
+    @Test
+    public void encodesUnicode() {
+        String name = "Ren\u00e9e \u674e \ud83d\ude00";
+        ContactTable table = new ContactTable.Builder().add(name, "", "", "", "").build();
+        assertEquals(name, table.getString(0, ContactTable.FIRST_NAME));
+        char[] buffer = new char[table.length(0, ContactTable.FIRST_NAME)];
+        assertEquals(name, new String(buffer, 0, table.getChars(0, ContactTable.FIRST_NAME, buffer)));
+    }
+
+    @Test
+    public void hashesLikeString() {
+        String[] names = {"", "amy", "Ren\u00e9e \u674e", "\ud83d\ude00 x"};
+        ContactTable.Builder builder = new ContactTable.Builder();
+        for (String name : names) {
+            builder.add(name, "", "", "", "");
+        }
+        ContactTable table = builder.build();
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i].hashCode(), table.hash(i, ContactTable.FIRST_NAME));
+        }
+    }
+
+    @Test
+    public void firstCodePoints() {
+        ContactTable table = new ContactTable.Builder()
+                .add("  amy", "\u00e9mile", "", "", "")
+                .add("\ud83d\ude00 x", "", "", "", "")
+                .build();
+        assertEquals('a', table.firstCodePoint(0, ContactTable.FIRST_NAME));
+        assertEquals(0xe9, table.firstCodePoint(0, ContactTable.LAST_NAME));
+        assertEquals(0x1f600, table.firstCodePoint(1, ContactTable.FIRST_NAME));
+        assertEquals(-1, table.firstCodePoint(1, ContactTable.LAST_NAME));
+    }
+
+    @Test
+    public void emptyTable() {
+        ContactTable table = new ContactTable.Builder(0).build();
+        assertEquals(0, table.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        new ContactTable.Builder().add(new Contact()).build().get(1);
+    }
+}
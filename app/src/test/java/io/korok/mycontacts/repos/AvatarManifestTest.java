@@ -0,0 +1,103 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import io.korok.mycontacts.model.Dictionary;
+
+import static org.junit.Assert.*;
+
+public class AvatarManifestTest {
+    static final File SOURCES = new File("avatars");
+    static final File GENERATED = new File("build/generated/assets/atlas/atlas/avatars.manifest");
+
+    private static AvatarManifest manifest() {
+        return new AvatarManifest.Builder()
+                .add("Amanda Brady.png")
+                .add("Amanda Brady@2x.png")
+                .add("Amanda Brady@3x.png")
+                .add("Kristin Patterson.png")           // no @2x
+                .add("Kristin Patterson@3x.png")
+                .add("Robin Counts@2x.png")             // no 1x
+                .build();
+    }
+
+    @Test
+    public void picksSmallestScaleAtLeastDensity() {
+        AvatarManifest manifest = manifest();
+        assertEquals(3, manifest.size());
+        assertEquals("Amanda Brady.png", manifest.resolve("Amanda Brady.png", 1f));
+        assertEquals("Amanda Brady@2x.png", manifest.resolve("Amanda Brady.png", 1.5f));
+        assertEquals("Amanda Brady@2x.png", manifest.resolve("Amanda Brady.png", 2f));
+        assertEquals("Amanda Brady@3x.png", manifest.resolve("Amanda Brady.png", 2.625f));
+        assertEquals("Amanda Brady.png", manifest.resolve("Amanda Brady.png", 0.75f));
+    }
+
+    @Test
+    public void fallsBackToExistingVariants() {
+        AvatarManifest manifest = manifest();
+        assertEquals("Kristin Patterson@3x.png", manifest.resolve("Kristin Patterson.png", 2f));
+        assertEquals("Kristin Patterson@3x.png", manifest.resolve("Kristin Patterson.png", 4f));
+        assertEquals("Amanda Brady@3x.png", manifest.resolve("Amanda Brady.png", 4f));
+        assertEquals("Robin Counts@2x.png", manifest.resolve("Robin Counts.png", 1f));
+        assertNull(manifest.resolve("Nobody.png", 2f));
+        assertNull(manifest.resolve(null, 2f));
+    }
+
+    @Test
+    public void resolvesOncePerAvatar() {
+        Dictionary avatars = new Dictionary(manifest().resolver(2f));
+        int code = avatars.encode("Kristin Patterson.png");
+        assertEquals(code, avatars.encode("Kristin Patterson.png"));
+        assertEquals("Kristin Patterson@3x.png", avatars.decode(code));
+    }
+
+    @Test
+    public void writesAndReads() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest().write(new DataOutputStream(bytes));
+        AvatarManifest read = AvatarManifest.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(3, read.size());
+        assertEquals("Kristin Patterson@3x.png", read.resolve("Kristin Patterson.png", 2f));
+        assertEquals("Robin Counts@2x.png", read.resolve("Robin Counts.png", 3f));
+    }
+
+    @Test
+    public void sameAsGenerated() throws IOException {
+        // packAvatars parses the file names in Groovy, it must agree with Builder.
+        AvatarManifest.Builder builder = new AvatarManifest.Builder();
+        int files = 0;
+        for (String name : SOURCES.list()) {
+            if (name.endsWith(".png")) {
+                builder.add(name);
+                files++;
+            }
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        builder.build().write(new DataOutputStream(expected));
+        byte[] generated = new byte[(int) GENERATED.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(GENERATED));
+        try {
+            in.readFully(generated);
+        } finally {
+            in.close();
+        }
+        assertArrayEquals(expected.toByteArray(), generated);
+
+        AvatarManifest manifest = AvatarManifest.read(new DataInputStream(new ByteArrayInputStream(generated)));
+        assertTrue(manifest.size() > 0);
+        assertTrue(manifest.size() <= files);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        AvatarManifest.read(new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+}
@@ -0,0 +1,126 @@
+package io.korok.mycontacts.repos;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.korok.mycontacts.Bench;
+import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.ContactChange;
+import io.korok.mycontacts.model.ContactTable;
+
+/**
+ * Measures applying 1% churn (adds, updates and removes) to 100k contacts,
+ * loaded in batches like LoadTask does.
+ *
+ * Skipped by default, run with: ./gradlew :app:testDebugUnitTest -Dbench=true
+ */
+public class ContactDiffBenchmark {
+    private static final int SIZE = 100000;
+    private static final int CHURN = SIZE / 100;
+    private static final int ROUNDS = 20;
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue(Bench.enabled());
+    }
+
+    @Test
+    public void churn() throws Exception {
+        final ContactList list = new ContactList();
+        int batchSize = ContactsRepo.LoadTask.FIRST_BATCH;
+        ContactTable.Builder batch = new ContactTable.Builder(batchSize);
+        for (int i = 0; i < SIZE; i++) {
+            batch.add(i, ContactFixtures.firstName(i), ContactFixtures.lastName(i), ContactFixtures.title(i),
+                    ContactFixtures.avatar(i), ContactFixtures.introduction(i));
+            if (batch.size() == batchSize || i == SIZE - 1) {
+                list.append(batch.build());
+                batchSize = Math.min(batchSize * 2, ContactsRepo.LoadTask.MAX_BATCH);
+                batch = new ContactTable.Builder(batchSize);
+            }
+        }
+
+        Random random = new Random(1);
+        final List<ContactChange> changes = new ArrayList<>(CHURN);
+        long nextId = SIZE;
+        for (int i = 0; i < CHURN; i++) {
+            switch (i % 3) {
+                case 0:
+                    changes.add(ContactChange.add(contact(nextId++)));
+                    break;
+                case 1:
+                    changes.add(ContactChange.update(contact(random.nextInt(SIZE))));
+                    break;
+                default:
+                    changes.add(ContactChange.remove(random.nextInt(SIZE)));
+            }
+        }
+
+        Bench.Result r = Bench.run(ROUNDS, new Bench.Task() {
+            @Override
+            public Object run() {
+                return ContactDiff.compute(list.copy(), changes);
+            }
+        });
+        Bench.report("diff " + CHURN + " changes on " + SIZE, r);
+
+        ContactDiff diff = ContactDiff.compute(list.copy(), changes);
+        final int[] notified = new int[2];
+        long start = System.nanoTime();
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notified[0]++;
+                notified[1] += count;
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notified[0]++;
+                notified[1] += count;
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notified[0]++;
+                notified[1]++;
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notified[0]++;
+                notified[1] += count;
+            }
+        });
+        Bench.report("dispatch", String.format("%10.2f ms, %d range updates, %d items (full rebind: %d)",
+                (System.nanoTime() - start) / 1e6, notified[0], notified[1], SIZE));
+        Bench.report("chunks", list.getChunkCount() + " -> " + diff.getContacts().getChunkCount());
+
+        // random access after the churn, chunks are located by binary search.
+        final ContactList result = diff.getContacts();
+        Bench.report("getId() after churn", Bench.run(ROUNDS, new Bench.Task() {
+            @Override
+            public Object run() {
+                long sum = 0;
+                for (int i = 0; i < result.size(); i += 7) {
+                    sum += result.getId(i);
+                }
+                return sum;
+            }
+        }));
+    }
+
+    private static Contact contact(long id) {
+        Contact c = new Contact();
+        c.id = id;
+        c.firstName = "Changed";
+        c.lastName = String.valueOf(id);
+        return c;
+    }
+}
@@ -0,0 +1,167 @@
+package io.korok.mycontacts.repos;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.ContactChange;
+
+import static org.junit.Assert.*;
+
+public class ContactDiffTest {
+
+    @Test
+    public void mergesAdjacentUpdates() {
+        ContactList list = list(10);
+        ContactDiff diff = ContactDiff.compute(list, Arrays.asList(
+                ContactChange.update(contact(3, "x")),
+                ContactChange.update(contact(4, "x")),
+                ContactChange.remove(6),
+                ContactChange.remove(7),
+                ContactChange.add(contact(20, "new")),
+                ContactChange.add(contact(21, "new"))));
+        assertEquals(3, diff.getUpdateCount());
+        assertEquals("[changed 3+2, removed 6+2, inserted 8+2]", log(diff));
+        assertEquals(10, diff.getContacts().size());
+        assertEquals("x", diff.getContacts().get(4).firstName);
+        assertEquals(21, diff.getContacts().getId(9));
+        // the old list is not changed.
+        assertEquals("4", list.get(4).firstName);
+    }
+
+    @Test
+    public void lastChangeOfIdWins() {
+        ContactDiff diff = ContactDiff.compute(list(5), Arrays.asList(
+                ContactChange.update(contact(2, "a")),
+                ContactChange.remove(2),
+                ContactChange.add(contact(9, "b")),
+                ContactChange.remove(9),
+                ContactChange.remove(42)));
+        assertEquals("[removed 2+1]", log(diff));
+        assertEquals(-3, diff.getContacts().indexOfId(2));
+    }
+
+    @Test
+    public void sharesUnchangedRanges() {
+        ContactList list = list(1000);
+        ContactDiff diff = ContactDiff.compute(list, Arrays.asList(ContactChange.update(contact(500, "x"))));
+        ContactList result = diff.getContacts();
+        assertEquals(3, result.getChunkCount());
+        assertSame(list.getBatch(0), result.getBatch(0));
+        assertSame(list.getBatch(999), result.getBatch(999));
+    }
+
+    @Test
+    public void updatesReplayToNewList() {
+        Random random = new Random(7);
+        ContactList list = list(2000);
+        long nextId = 2000;
+        for (int round = 0; round < 20; round++) {
+            List<ContactChange> changes = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                int type = random.nextInt(3);
+                if (type == ContactChange.ADD) {
+                    changes.add(ContactChange.add(contact(nextId++, "added")));
+                } else {
+                    long id = list.getId(random.nextInt(list.size()));
+                    changes.add(type == ContactChange.UPDATE
+                            ? ContactChange.update(contact(id, "updated " + round))
+                            : ContactChange.remove(id));
+                }
+            }
+            ContactDiff diff = ContactDiff.compute(list.copy(), changes);
+            ContactList result = diff.getContacts();
+
+            // replay the updates on the old ids, like an adapter would.
+            final List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < list.size(); i++) {
+                ids.add(list.getId(i));
+            }
+            final ContactList target = result;
+            diff.dispatchUpdatesTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    for (int i = 0; i < count; i++) {
+                        ids.add(position + i, target.getId(position + i));
+                    }
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    ids.subList(position, position + count).clear();
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    fail();
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    for (int i = 0; i < count; i++) {
+                        assertEquals(ids.get(position + i).longValue(), target.getId(position + i));
+                        assertTrue(target.get(position + i).firstName.startsWith("updated"));
+                    }
+                }
+            });
+            assertEquals(result.size(), ids.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(ids.get(i).longValue(), result.getId(i));
+                assertEquals(result.getId(i), result.get(i).id);
+                if (i > 0) {
+                    assertTrue(result.getId(i - 1) < result.getId(i));
+                }
+            }
+            list = result;
+        }
+    }
+
+    private static ContactList list(int size) {
+        List<Contact> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(contact(i, String.valueOf(i)));
+        }
+        ContactList list = new ContactList();
+        list.append(batch);
+        return list;
+    }
+
+    private static Contact contact(long id, String firstName) {
+        Contact c = new Contact();
+        c.id = id;
+        c.firstName = firstName;
+        return c;
+    }
+
+    private static String log(ContactDiff diff) {
+        final List<String> log = new ArrayList<>();
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                log.add("inserted " + position + "+" + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                log.add("removed " + position + "+" + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                log.add("moved " + fromPosition + "->" + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                log.add("changed " + position + "+" + count);
+            }
+        });
+        return log.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package io.korok.mycontacts.repos;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Generates synthetic contacts.json files for tests and benchmarks.
+ */
+public class ContactFixtures {
+    public static final String[] FIRST = {"Allan", "Amanda", "Ashley", "Carlos", "Celeste", "Elvia", "Henry", "Kat"};
+    public static final String[] LAST = {"Munger", "Brady", "Mc Carthy", "Slattery", "Burton", "Atkins", "Brill", "larsson"};
+    public static final String[] TITLE = {"Writer", "Sales Representative", "Product Manager", "Designer"};
+    public static final String INTRO = "Ut malesuada sollicitudin tincidunt. Maecenas volutpat suscipit efficitur. " +
+            "Curabitur ut tortor sit amet lacus pellentesque convallis in laoreet lectus. Curabitur lorem velit, " +
+            "bibendum et vulputate vulputate, commodo in tortor. Curabitur a dapibus mauris. Vestibulum hendrerit " +
+            "euismod felis at hendrerit. Pellentesque imperdiet volutpat molestie. Nam vehicula dui eu consequat " +
+            "finibus. Phasellus sed placerat lorem. Nulla pretium a magna sit amet iaculis.";
+
+    /**
+     * The real asset, unit tests run with the module directory as working dir.
+     */
+    public static final File ASSET = new File("src/main/assets/contacts.json");
+
+    public static String firstName(int i) {
+        return FIRST[i % FIRST.length];
+    }
+
+    public static String lastName(int i) {
+        return LAST[(i / FIRST.length) % LAST.length] + " " + i;
+    }
+
+    public static String title(int i) {
+        return TITLE[i % TITLE.length];
+    }
+
+    public static String avatar(int i) {
+        return firstName(i) + " " + LAST[(i / FIRST.length) % LAST.length] + ".png";
+    }
+
+    public static String introduction(int i) {
+        return i + " " + INTRO;
+    }
+
+    public static void write(Writer w, int count) throws IOException {
+        w.write("[\n");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                w.write(",\n");
+            }
+            w.write("  {\n    \"first_name\": \"" + firstName(i) + "\",\n");
+            w.write("    \"last_name\": \"" + lastName(i) + "\",\n");
+            w.write("    \"avatar_filename\": \"" + avatar(i) + "\",\n");
+            w.write("    \"title\": \"" + title(i) + "\",\n");
+            w.write("    \"introduction\": \"" + introduction(i) + "\"\n  }");
+        }
+        w.write("\n]\n");
+    }
+
+    public static File writeTemp(int count) throws IOException {
+        File f = File.createTempFile("contacts-" + count + "-", ".json");
+        f.deleteOnExit();
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            write(w, count);
+        } finally {
+            w.close();
+        }
+        return f;
+    }
+}
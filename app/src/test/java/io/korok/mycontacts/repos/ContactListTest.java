@@ -0,0 +1,128 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.korok.mycontacts.model.Contact;
+
+import static org.junit.Assert.*;
+
+public class ContactListTest {
+
+    @Test
+    public void appendsBatches() {
+        ContactList list = new ContactList();
+        assertEquals(0, list.append(batch(0, 16)));
+        assertEquals(16, list.append(Collections.<Contact>emptyList()));
+        assertEquals(16, list.append(batch(16, 32)));
+        for (int i = 40; i > 0; i--) {
+            list.append(batch(list.size(), i));
+        }
+        assertEquals(48 + 40 * 41 / 2, list.size());
+        // random and sequential access.
+        for (int i = list.size() - 1; i >= 0; i -= 7) {
+            assertEquals(String.valueOf(i), list.get(i).firstName);
+        }
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(String.valueOf(i), list.get(i).firstName);
+        }
+    }
+
+    @Test
+    public void locatesBatch() {
+        ContactList list = new ContactList();
+        List<Contact> first = batch(0, 3);
+        List<Contact> second = batch(3, 5);
+        list.append(first);
+        list.append(second);
+        assertSame(first, list.getBatch(2));
+        assertSame(second, list.getBatch(3));
+        assertEquals(2, list.getIndexInBatch(2));
+        assertEquals(4, list.getIndexInBatch(7));
+    }
+
+    @Test
+    public void findsIds() {
+        ContactList list = new ContactList();
+        list.append(batch(0, 10));
+        list.append(batch(10, 5));
+        assertEquals(0, list.getId(0));
+        assertEquals(12, list.getId(12));
+        assertEquals(12, list.indexOfId(12));
+        assertEquals(-16, list.indexOfId(15));
+        assertEquals(-1, list.indexOfId(-3));
+
+        // explicit ids, e.g. changed contacts.
+        ContactList changed = new ContactList();
+        changed.appendRange(list, 0, 3);
+        changed.append(batch(0, 2), new long[]{5, 8});
+        changed.appendRange(list, 10, 11);
+        assertEquals(6, changed.size());
+        assertEquals(8, changed.getId(4));
+        assertEquals(10, changed.getId(5));
+        assertEquals(3, changed.indexOfId(5));
+        assertEquals(-5, changed.indexOfId(6));
+        assertEquals(-6, changed.indexOfId(9));
+        assertEquals(-7, changed.indexOfId(11));
+    }
+
+    @Test
+    public void sharesRanges() {
+        ContactList list = new ContactList();
+        List<Contact> first = batch(0, 10);
+        list.append(first);
+        list.append(batch(10, 10));
+
+        ContactList slice = new ContactList();
+        slice.appendRange(list, 5, 15);
+        slice.appendRange(slice.copy(), 2, 4);
+        assertEquals(12, slice.size());
+        assertEquals(3, slice.getChunkCount());
+        assertSame(first, slice.getBatch(0));
+        assertEquals(5, slice.getIndexInBatch(0));
+        assertEquals("14", slice.get(9).firstName);
+        assertEquals("7", slice.get(10).firstName);
+        assertEquals(8, slice.getId(11));
+    }
+
+    @Test
+    public void rejectsDescendingIds() {
+        ContactList list = new ContactList();
+        list.append(batch(0, 10));
+        // e.g. a contact added by a change before the next batch.
+        list.append(batch(20, 1));
+        try {
+            list.append(batch(10, 10));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            list.append(batch(0, 1), new long[]{20});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(11, list.size());
+        assertEquals(10, list.indexOfId(20));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        ContactList list = new ContactList();
+        list.append(batch(0, 3));
+        list.get(3);
+    }
+
+    private static List<Contact> batch(int start, int count) {
+        List<Contact> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Contact c = new Contact();
+            c.id = start + i;
+            c.firstName = String.valueOf(start + i);
+            batch.add(c);
+        }
+        return batch;
+    }
+}
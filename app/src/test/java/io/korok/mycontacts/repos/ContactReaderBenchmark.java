@@ -0,0 +1,92 @@
+package io.korok.mycontacts.repos;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.korok.mycontacts.Bench;
+import io.korok.mycontacts.model.Contact;
+
+/**
+ * Compares ContactReader with the old whole-file JSONArray path.
+ *
+ * Skipped by default, run with: ./gradlew :app:testDebugUnitTest -Dbench=true
+ */
+public class ContactReaderBenchmark {
+    private static final int[] SIZES = {1000, 10000, 100000};
+    private static final int ROUNDS = 5;
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue(Bench.enabled());
+    }
+
+    @Test
+    public void parse() throws Exception {
+        for (int size : SIZES) {
+            File file = ContactFixtures.writeTemp(size);
+            Bench.Result legacy = Bench.run(ROUNDS, new JSONArrayPath(file));
+            Bench.Result stream = Bench.run(ROUNDS, new StreamingPath(file));
+            Bench.report("parse " + size + " JSONArray", legacy);
+            Bench.report("parse " + size + " ContactReader", stream);
+        }
+    }
+
+    // The path ContactsRepo.getFakeData used before: byte[] -> String -> JSONArray -> Contact.
+    static class JSONArrayPath implements Bench.Task {
+        private final File file;
+
+        JSONArrayPath(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Object run() throws Exception {
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[in.available()];
+                int n = 0;
+                while (n < buffer.length) {
+                    n += in.read(buffer, n, buffer.length - n);
+                }
+                JSONArray array = new JSONArray(new String(buffer, "UTF-8"));
+                List<Contact> contacts = new ArrayList<>(array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject json = array.getJSONObject(i);
+                    Contact c = new Contact();
+                    c.firstName = json.optString("first_name");
+                    c.lastName = json.optString("last_name");
+                    c.title = json.optString("title");
+                    c.avatar = json.optString("avatar_filename");
+                    c.introduction = json.optString("introduction");
+                    contacts.add(c);
+                }
+                return contacts;
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    static class StreamingPath implements Bench.Task {
+        private final File file;
+
+        StreamingPath(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Object run() throws Exception {
+            return ContactReaderTest.readAll(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        }
+    }
+}
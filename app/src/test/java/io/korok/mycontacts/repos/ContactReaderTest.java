@@ -0,0 +1,126 @@
+package io.korok.mycontacts.repos;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.korok.mycontacts.model.Contact;
+
+import static org.junit.Assert.*;
+
+public class ContactReaderTest {
+
+    @Test
+    public void readsAllFields() throws IOException {
+        List<Contact> list = readAll(new StringReader("[{\"first_name\":\"Allan\",\"last_name\":\"Munger\"," +
+                "\"avatar_filename\":\"Allan Munger.png\",\"title\":\"Writer\",\"introduction\":\"Hi\"}]"));
+        assertEquals(1, list.size());
+        Contact c = list.get(0);
+        assertEquals("Allan", c.firstName);
+        assertEquals("Munger", c.lastName);
+        assertEquals("Allan Munger.png", c.avatar);
+        assertEquals("Writer", c.title);
+        assertEquals("Hi", c.introduction);
+    }
+
+    @Test
+    public void emptyArray() throws IOException {
+        assertTrue(readAll(new StringReader(" [ ] ")).isEmpty());
+    }
+
+    @Test
+    public void missingFieldsAreEmpty() throws IOException {
+        Contact c = readAll(new StringReader("[{}]")).get(0);
+        assertEquals("", c.firstName);
+        assertEquals("", c.introduction);
+    }
+
+    @Test
+    public void skipsUnknownValues() throws IOException {
+        List<Contact> list = readAll(new StringReader("[{\"id\": 12, \"tags\": [\"a]\", {\"b\": null}], " +
+                "\"ok\": true, \"first_name\": \"Kat\"}, {\"first_name\": \"Tim\", \"score\": -1.5e3}]"));
+        assertEquals(2, list.size());
+        assertEquals("Kat", list.get(0).firstName);
+        assertEquals("Tim", list.get(1).firstName);
+        // ids are positions, the "id" field is unknown.
+        assertEquals(0, list.get(0).id);
+        assertEquals(1, list.get(1).id);
+    }
+
+    @Test
+    public void decodesEscapes() throws IOException {
+        Contact c = readAll(new StringReader("[{\"introduction\": \"a\\\"b\\\\c\\nd\\u00e9\\/\"}]")).get(0);
+        assertEquals("a\"b\\c\ndé/", c.introduction);
+    }
+
+    @Test
+    public void handlesPartialReads() throws IOException {
+        String json = new String(Files.readAllBytes(ContactFixtures.ASSET.toPath()), "UTF-8");
+        List<Contact> expected = readAll(new StringReader(json));
+        List<Contact> actual = readAll(new TrickleReader(new StringReader(json)));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    public void matchesJSONArray() throws Exception {
+        String json = new String(Files.readAllBytes(ContactFixtures.ASSET.toPath()), "UTF-8");
+        JSONArray array = new JSONArray(json);
+        List<Contact> list = readAll(new InputStreamReader(new FileInputStream(ContactFixtures.ASSET), "UTF-8"));
+        assertEquals(array.length(), list.size());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject o = array.getJSONObject(i);
+            Contact c = list.get(i);
+            assertEquals(o.optString("first_name"), c.firstName);
+            assertEquals(o.optString("last_name"), c.lastName);
+            assertEquals(o.optString("title"), c.title);
+            assertEquals(o.optString("avatar_filename"), c.avatar);
+            assertEquals(o.optString("introduction"), c.introduction);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedInput() throws IOException {
+        readAll(new StringReader("[{\"first_name\": \"Al"));
+    }
+
+    static List<Contact> readAll(Reader in) throws IOException {
+        ContactReader reader = new ContactReader(in);
+        try {
+            List<Contact> list = new ArrayList<>();
+            Contact c;
+            while ((c = reader.next()) != null) {
+                list.add(c);
+            }
+            return list;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * A Reader returns at most 1 char per read, to simulate partial reads.
+     */
+    static class TrickleReader extends FilterReader {
+        TrickleReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 1));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.korok.mycontacts.Bench;
+
+/**
+ * Measures per-keystroke latency of ContactSearch on 100k contacts.
+ *
+ * Skipped by default, run with: ./gradlew :app:testDebugUnitTest -Dbench=true
+ */
+public class ContactSearchBenchmark {
+    private static final int SIZE = 100000;
+    private static final String[] TYPED = {"Ashley Mc Carthy 1", "Writer", "Sales Rep", "Kat 99"};
+    private static final int ROUNDS = 200;
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue(Bench.enabled());
+    }
+
+    @Test
+    public void keystrokes() {
+        long start = System.nanoTime();
+        ContactSearch.Builder builder = new ContactSearch.Builder();
+        for (int i = 0; i < SIZE; i++) {
+            builder.add(ContactFixtures.firstName(i), ContactFixtures.lastName(i), ContactFixtures.title(i));
+        }
+        ContactSearch search = builder.build();
+        Bench.report("search build " + SIZE, String.format("%10.2f ms", (System.nanoTime() - start) / 1e6));
+
+        for (String typed : TYPED) {
+            long worst = 0;
+            long total = 0;
+            int strokes = 0;
+            int hits = 0;
+            for (int r = 0; r < ROUNDS; r++) {
+                search.search("");
+                for (int i = 1; i <= typed.length(); i++) {
+                    long t = System.nanoTime();
+                    hits = search.search(typed.substring(0, i)).length;
+                    t = System.nanoTime() - t;
+                    if (r > ROUNDS / 2) {
+                        // the first half is warm up.
+                        worst = Math.max(worst, t);
+                        total += t;
+                        strokes++;
+                    }
+                }
+            }
+            Bench.report("search \"" + typed + "\"", String.format("avg %8.1f us, max %8.1f us, %d hits",
+                    total / 1e3 / strokes, worst / 1e3, hits));
+        }
+    }
+}
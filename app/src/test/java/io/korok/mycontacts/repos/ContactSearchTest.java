@@ -0,0 +1,71 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ContactSearchTest {
+
+    private static ContactSearch index() {
+        return new ContactSearch.Builder()
+                .add("Allan", "Munger", "Writer")                   // 0
+                .add("Amanda", "Brady", "Sales Representative")     // 1
+                .add("Kat", "Allen", "Product Manager")             // 2
+                .add("Ashley", "Mc Carthy", "Writer")               // 3
+                .add("Carlos", "Slattery", "Allan's assistant")     // 4
+                .build();
+    }
+
+    @Test
+    public void ranksFirstNameThenLastNameThenTitle() {
+        assertArrayEquals(new int[]{0, 2, 4}, index().search("al"));
+    }
+
+    @Test
+    public void ignoresCaseAndPunctuation() {
+        ContactSearch search = index();
+        assertArrayEquals(new int[]{3}, search.search("MC"));
+        assertArrayEquals(new int[]{1}, search.search("  sales, "));
+    }
+
+    @Test
+    public void refinesExtendedQuery() {
+        ContactSearch search = index();
+        assertArrayEquals(new int[]{0, 1, 3, 2, 4}, search.search("a"));
+        assertArrayEquals(new int[]{0, 2, 4}, search.search("al"));
+        assertArrayEquals(new int[]{0, 4}, search.search("alla"));
+        assertArrayEquals(new int[0], search.search("allax"));
+        // shorter query again, the whole index is searched.
+        assertArrayEquals(new int[]{1}, search.search("am"));
+    }
+
+    @Test
+    public void andsTerms() {
+        ContactSearch search = index();
+        assertArrayEquals(new int[]{0, 3}, search.search("writer"));
+        assertArrayEquals(new int[]{3}, search.search("writer as"));
+        assertArrayEquals(new int[]{4}, search.search("car assist"));
+        assertArrayEquals(new int[0], search.search("writer kat"));
+    }
+
+    @Test
+    public void emptyQuery() {
+        assertEquals(0, index().search(" ").length);
+        assertEquals(0, new ContactSearch.Builder().build().search("a").length);
+    }
+
+    @Test
+    public void manyResults() {
+        ContactSearch.Builder builder = new ContactSearch.Builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.add(i % 2 == 0 ? "Kat" : "Tim", "Larsson", "Writer");
+        }
+        ContactSearch search = builder.build();
+        int[] result = search.search("w");
+        assertEquals(1000, result.length);
+        assertEquals(999, result[999]);
+        result = search.search("k");
+        assertEquals(500, result.length);
+        assertEquals(998, result[499]);
+    }
+}
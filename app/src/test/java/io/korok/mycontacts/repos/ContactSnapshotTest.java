@@ -0,0 +1,62 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import io.korok.mycontacts.model.Contact;
+
+import static org.junit.Assert.*;
+
+public class ContactSnapshotTest {
+    /**
+     * Written by the `compileContactSnapshot` task, which runs before the
+     * unit tests are compiled.
+     */
+    static final File SNAPSHOT = new File("build/generated/assets/snapshot/contacts.bin");
+
+    @Test
+    public void sameAsJson() throws IOException {
+        List<Contact> json = ContactReaderTest.readAll(
+                new InputStreamReader(new FileInputStream(ContactFixtures.ASSET), "UTF-8"));
+        ContactSnapshot snapshot = map(SNAPSHOT);
+        IntroductionLoader introductions = new IntroductionLoader(snapshot, 2);
+        assertEquals(json.size(), snapshot.size());
+        for (int i = 0; i < json.size(); i++) {
+            Contact c = snapshot.get(i);
+            assertNull(c.introduction);
+            c.introduction = introductions.get(c);
+            c.introductionIndex = -1;
+            assertEquals(json.get(i).toString(), c.toString());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBadMagic() throws IOException {
+        new ContactSnapshot(ByteBuffer.allocate(ContactSnapshot.HEADER_SIZE));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncated() throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(ContactSnapshot.HEADER_SIZE);
+        b.putInt(ContactSnapshot.MAGIC).putInt(ContactSnapshot.VERSION).putInt(10).putInt(ContactSnapshot.FIELDS);
+        new ContactSnapshot(b);
+    }
+
+    static ContactSnapshot map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return ContactSnapshot.map(channel, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+    }
+}
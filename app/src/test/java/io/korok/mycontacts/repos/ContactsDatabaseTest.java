@@ -0,0 +1,166 @@
+package io.korok.mycontacts.repos;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import io.korok.mycontacts.model.Contact;
+import io.korok.mycontacts.model.Dictionary;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 27)
+public class ContactsDatabaseTest {
+    private static final int COUNT = 100;
+
+    private ContactsDatabase db;
+
+    @Before
+    public void setUp() throws IOException {
+        // in-memory, every test starts empty.
+        db = new ContactsDatabase(RuntimeEnvironment.application, null);
+        StringWriter json = new StringWriter();
+        ContactFixtures.write(json, COUNT);
+        assertEquals(COUNT, db.importContacts(new ContactReader(new StringReader(json.toString()))));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void readsThroughCursor() {
+        CursorContacts contacts = new CursorContacts(db.query(), new Dictionary(), null);
+        try {
+            assertEquals(COUNT, db.count());
+            assertEquals(COUNT, contacts.size());
+            for (int i : new int[]{0, 57, COUNT - 1, 3}) {
+                Contact c = contacts.get(i);
+                assertEquals(ContactFixtures.firstName(i), c.firstName);
+                assertEquals(ContactFixtures.lastName(i), c.lastName);
+                assertEquals(ContactFixtures.title(i), c.title);
+                assertEquals(ContactFixtures.avatar(i), c.avatar);
+                assertNull(c.introduction);
+                // ids are the reader's.
+                assertEquals(i, c.id);
+                assertEquals(i, c.introductionIndex);
+            }
+            assertSame(contacts.get(0).title, contacts.get(4).title);
+        } finally {
+            contacts.close();
+        }
+    }
+
+    @Test
+    public void resolvesAvatarsInBoundedCache() {
+        // every contact has its own avatar.
+        db.getWritableDatabase().execSQL("UPDATE " + ContactsDatabase.TABLE + " SET " + ContactsDatabase.AVATAR
+                + " = " + ContactsDatabase.ID + " || '.png'");
+        final int[] mapped = new int[1];
+        CursorContacts contacts = new CursorContacts(db.query(), new Dictionary(), new Dictionary.Mapper() {
+            @Override
+            public String map(String value) {
+                mapped[0]++;
+                return value.replace(".png", "@2x.png");
+            }
+        });
+        try {
+            assertEquals("5@2x.png", contacts.get(5).avatar);
+            contacts.get(5);
+            assertEquals(1, mapped[0]);
+            // the cache doesn't keep all of them, the first one is resolved again.
+            for (int i = 0; i < COUNT; i++) {
+                contacts.get(i);
+            }
+            assertEquals(COUNT, mapped[0]);
+            contacts.get(0);
+            assertEquals(COUNT + 1, mapped[0]);
+        } finally {
+            contacts.close();
+        }
+    }
+
+    @Test
+    public void loadsIntroductionsById() {
+        IntroductionLoader loader = new IntroductionLoader(db, 2);
+        CursorContacts contacts = new CursorContacts(db.query(), new Dictionary(), null);
+        try {
+            assertEquals(ContactFixtures.introduction(42), loader.get(contacts.get(42)));
+            assertEquals("", db.getIntroduction(COUNT + 1));
+        } finally {
+            contacts.close();
+        }
+    }
+
+    @Test
+    public void queriesTextForIndexes() {
+        Cursor texts = db.queryText();
+        try {
+            assertEquals(COUNT, texts.getCount());
+            assertTrue(texts.moveToPosition(57));
+            assertEquals(ContactFixtures.firstName(57), texts.getString(0));
+            assertEquals(ContactFixtures.title(57), texts.getString(2));
+            assertEquals(ContactFixtures.introduction(57), texts.getString(3));
+        } finally {
+            texts.close();
+        }
+    }
+
+    @Test
+    public void searchesAllTextColumns() {
+        // first names cycle through 8 values.
+        assertEquals(COUNT / 8 + 1, count(db.search("Allan")));
+        assertEquals(COUNT / 8 + 1, count(db.search("all")));
+        assertEquals(COUNT / 4, count(db.search("writer")));
+        assertEquals(1, count(db.search("57")));
+        assertEquals(COUNT, count(db.search("Malesuada")));
+        // AND-ed terms.
+        assertEquals(1, count(db.search("allan writer 0")));
+        assertEquals(0, count(db.search("kat writer")));
+        assertEquals(0, count(db.search(" ")));
+    }
+
+    @Test
+    public void keepsIndexInSync() {
+        ContentValues values = new ContentValues();
+        values.put(ContactsDatabase.TITLE, "Astronaut");
+        db.getWritableDatabase().update(ContactsDatabase.TABLE, values, ContactsDatabase.ID + " = 1", null);
+        db.getWritableDatabase().delete(ContactsDatabase.TABLE, ContactsDatabase.ID + " = 2", null);
+
+        assertEquals(1, count(db.search("astronaut")));
+        assertEquals(COUNT - 1, count(db.search("malesuada")));
+    }
+
+    @Test
+    public void malformedImportIsRolledBack() {
+        // ids of the reader start at 0 again, import into an empty database.
+        db.getWritableDatabase().delete(ContactsDatabase.TABLE, null, null);
+        try {
+            db.importContacts(new ContactReader(new StringReader("[{\"first_name\": \"A\"}, {")));
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(0, db.count());
+    }
+
+    private static int count(Cursor cursor) {
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import io.korok.mycontacts.Bench;
+
+/**
+ * Measures size and query latency of IntroductionIndex on 100k introductions,
+ * compared to a String.contains() scan.
+ *
+ * Skipped by default, run with: ./gradlew :app:testDebugUnitTest -Dbench=true
+ */
+public class IntroductionIndexBenchmark {
+    private static final int SIZE = 100000;
+    private static final String[] QUERIES = {"lorem", "curabitur dapibus", "nulla magna iaculis", "zzz"};
+    private static final int ROUNDS = 200;
+    private static final int SCAN_ROUNDS = 10;
+
+    private static String[] intros;
+    private static IntroductionIndex index;
+
+    @BeforeClass
+    public static void setUp() {
+        Assume.assumeTrue(Bench.enabled());
+        // introductions of 40 words drawn from the fixture text, so words have
+        // different frequencies.
+        String[] words = ContactSearch.tokenize(ContactFixtures.INTRO);
+        Random random = new Random(1);
+        intros = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int w = 0; w < 40; w++) {
+                // skewed, the first words are the most frequent.
+                int k = (int) (words.length * Math.pow(random.nextDouble(), 3));
+                sb.append(words[k]).append(w % 8 == 7 ? ". " : " ");
+            }
+            intros[i] = sb.toString();
+        }
+    }
+
+    @Test
+    public void size() throws IOException {
+        long text = 0;
+        for (String intro : intros) {
+            text += intro.length();
+        }
+        long start = System.nanoTime();
+        index = build();
+        Bench.report("introduction index build " + SIZE, String.format("%10.2f ms", (System.nanoTime() - start) / 1e6));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes), 0);
+        Bench.report("introduction index size", String.format("%d words, postings %d KB, file %d KB, text %d KB",
+                index.getTermCount(), index.getPostingsSize() / 1024, bytes.size() / 1024, text / 1024));
+    }
+
+    @Test
+    public void queries() {
+        if (index == null) {
+            index = build();
+        }
+        for (String query : QUERIES) {
+            Bench.report("introduction \"" + query + "\"", String.format("index %8.1f us, scan %10.1f us, %d hits",
+                    time(new Query() {
+                        @Override
+                        public int run(String q) {
+                            return index.search(q).length;
+                        }
+                    }, query, ROUNDS), time(new Query() {
+                        @Override
+                        public int run(String q) {
+                            return scan(q);
+                        }
+                    }, query, SCAN_ROUNDS), index.search(query).length));
+        }
+    }
+
+    private static IntroductionIndex build() {
+        IntroductionIndex.Builder builder = new IntroductionIndex.Builder();
+        for (String intro : intros) {
+            builder.add(intro);
+        }
+        return builder.build();
+    }
+
+    // the linear scan the index replaces, case-insensitive substrings.
+    private static int scan(String query) {
+        String[] terms = query.toLowerCase().split(" ");
+        int hits = 0;
+        for (String intro : intros) {
+            String lower = intro.toLowerCase();
+            boolean all = true;
+            for (String t : terms) {
+                if (!lower.contains(t)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    interface Query {
+        int run(String q);
+    }
+
+    // median microseconds of a query, after one warm-up run.
+    private static double time(Query query, String q, int rounds) {
+        query.run(q);
+        long[] times = new long[rounds];
+        for (int r = 0; r < rounds; r++) {
+            long t = System.nanoTime();
+            query.run(q);
+            times[r] = System.nanoTime() - t;
+        }
+        Arrays.sort(times);
+        return times[rounds / 2] / 1e3;
+    }
+}
@@ -0,0 +1,81 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class IntroductionIndexTest {
+
+    private static IntroductionIndex index() {
+        return new IntroductionIndex.Builder()
+                .add("Loves hiking and coffee.")                    // 0
+                .add("Coffee, coffee and more COFFEE!")             // 1
+                .add("")                                            // 2
+                .add(null)                                          // 3
+                .add("Hiking guide, tea lover.")                    // 4
+                .build();
+    }
+
+    @Test
+    public void matchesWords() {
+        IntroductionIndex index = index();
+        assertEquals(5, index.size());
+        assertArrayEquals(new int[]{0, 1}, index.search("coffee"));
+        assertArrayEquals(new int[]{0, 4}, index.search("HIKING"));
+        assertArrayEquals(new int[0], index.search("hik"));
+        assertArrayEquals(new int[0], index.search("milk"));
+        assertArrayEquals(new int[0], index.search(" "));
+    }
+
+    @Test
+    public void andsTerms() {
+        IntroductionIndex index = index();
+        assertArrayEquals(new int[]{0}, index.search("coffee hiking"));
+        assertArrayEquals(new int[]{0, 1}, index.search("and, coffee"));
+        assertArrayEquals(new int[0], index.search("coffee tea"));
+        assertArrayEquals(new int[0], index.search("coffee milk"));
+    }
+
+    @Test
+    public void largeDeltas() {
+        IntroductionIndex.Builder builder = new IntroductionIndex.Builder();
+        for (int i = 0; i < 100000; i++) {
+            builder.add((i % 3 == 0 ? "three " : "") + (i % 1000 == 0 ? "rare " : "") + (i == 99999 ? "last" : ""));
+        }
+        IntroductionIndex index = builder.build();
+        assertEquals(33334, index.search("three").length);
+        assertArrayEquals(new int[]{0, 3000, 6000, 9000}, Arrays.copyOf(index.search("rare three"), 4));
+        assertEquals(34, index.search("three rare").length);
+        assertArrayEquals(new int[]{99999}, index.search("last"));
+    }
+
+    @Test
+    public void writesAndReads() throws IOException {
+        IntroductionIndex index = index();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes), 42);
+
+        IntroductionIndex read = IntroductionIndex.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 42);
+        assertNotNull(read);
+        assertEquals(index.size(), read.size());
+        assertEquals(index.getTermCount(), read.getTermCount());
+        assertArrayEquals(new int[]{0}, read.search("coffee hiking"));
+        assertArrayEquals(new int[]{4}, read.search("tea"));
+
+        // written for another source.
+        assertNull(IntroductionIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 43));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsGarbage() throws IOException {
+        IntroductionIndex.read(new DataInputStream(new ByteArrayInputStream(new byte[16])), 0);
+    }
+}
@@ -0,0 +1,67 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import io.korok.mycontacts.model.Contact;
+
+import static org.junit.Assert.*;
+
+public class IntroductionLoaderTest {
+
+    @Test
+    public void eagerIntroduction() {
+        Contact c = new Contact();
+        c.introduction = "Hi";
+        assertEquals("Hi", new IntroductionLoader(null, 2).get(c));
+    }
+
+    @Test
+    public void loadsOnDemandAndCaches() {
+        CountingSource source = new CountingSource();
+        IntroductionLoader loader = new IntroductionLoader(source, 2);
+        assertEquals("intro 1", loader.get(lazy(1)));
+        assertEquals("intro 1", loader.get(lazy(1)));
+        assertEquals(1, source.loads);
+        assertEquals(1, loader.getHitCount());
+
+        loader.get(lazy(2));
+        loader.get(lazy(3)); // evicts 1
+        loader.get(lazy(1));
+        assertEquals(4, source.loads);
+        assertEquals(4, loader.getMissCount());
+    }
+
+    @Test
+    public void trimsLeastRecentlyUsed() {
+        CountingSource source = new CountingSource();
+        IntroductionLoader loader = new IntroductionLoader(source, 3);
+        loader.get(lazy(1));
+        loader.get(lazy(2));
+        loader.get(lazy(3));
+        loader.get(lazy(1));
+        assertEquals(3, loader.size());
+        loader.trimToSize(1);
+        assertEquals(1, loader.size());
+        loader.get(lazy(1));
+        assertEquals(3, source.loads);
+        loader.get(lazy(3));
+        assertEquals(4, source.loads);
+        assertEquals(3, loader.maxSize());
+    }
+
+    private static Contact lazy(int index) {
+        Contact c = new Contact();
+        c.introductionIndex = index;
+        return c;
+    }
+
+    static class CountingSource implements IntroductionLoader.Source {
+        int loads;
+
+        @Override
+        public String getIntroduction(int index) {
+            loads++;
+            return "intro " + index;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.korok.mycontacts.repos;
+
+import org.junit.Test;
+
+import java.util.AbstractList;
+
+import io.korok.mycontacts.model.Contact;
+
+import static org.junit.Assert.*;
+
+public class PagedContactsTest {
+
+    @Test
+    public void exactSizeWithoutLoading() {
+        CountingSource source = new CountingSource(1001);
+        PagedContacts paged = new PagedContacts(source, 32, 4);
+        assertEquals(1001, paged.size());
+        assertEquals(0, source.gets);
+        assertEquals(0, paged.getResidentPages());
+    }
+
+    @Test
+    public void loadsPageOnce() {
+        CountingSource source = new CountingSource(100);
+        PagedContacts paged = new PagedContacts(source, 32, 4);
+        for (int i = 0; i < 32; i++) {
+            assertEquals(String.valueOf(i), paged.get(i).firstName);
+        }
+        assertEquals(32, source.gets);
+        assertEquals(1, paged.getLoadCount());
+        // last page is partial.
+        assertEquals("99", paged.get(99).firstName);
+        assertEquals(32 + 4, source.gets);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        PagedContacts paged = new PagedContacts(new CountingSource(1000), 10, 3);
+        paged.get(0);   // page 0
+        paged.get(10);  // page 1
+        paged.get(20);  // page 2
+        paged.get(1);   // page 0 is used again
+        paged.get(30);  // page 3 evicts page 1
+        assertEquals(3, paged.getResidentPages());
+        assertEquals(4, paged.getLoadCount());
+        paged.get(2);
+        assertEquals(4, paged.getLoadCount());
+        paged.get(11);
+        assertEquals(5, paged.getLoadCount());
+    }
+
+    @Test
+    public void trimsLeastRecentlyUsed() {
+        PagedContacts paged = new PagedContacts(new CountingSource(1000), 10, 4);
+        paged.get(0);   // page 0
+        paged.get(10);  // page 1
+        paged.get(20);  // page 2
+        paged.get(1);   // page 0 is used again
+        paged.trimToSize(2);
+        assertEquals(2, paged.getResidentPages());
+        paged.get(2);
+        paged.get(21);
+        assertEquals(3, paged.getLoadCount());
+        paged.get(11);
+        assertEquals(4, paged.getLoadCount());
+
+        // it refills up to max pages.
+        paged.trimToSize(0);
+        assertEquals(0, paged.getResidentPages());
+        for (int i = 0; i < 100; i += 10) {
+            paged.get(i);
+        }
+        assertEquals(4, paged.getResidentPages());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        new PagedContacts(new CountingSource(10), 4, 2).get(10);
+    }
+
+    static class CountingSource extends AbstractList<Contact> {
+        final int size;
+        int gets;
+
+        CountingSource(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Contact get(int index) {
+            gets++;
+            Contact c = new Contact();
+            c.firstName = String.valueOf(index);
+            return c;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}